@@ -18,15 +18,22 @@ public class Config {
             .comment("Enable debug overlays and diagnostic logging.")
             .define("debugMode", false);
 
+    private static final ModConfigSpec.LongValue networkTickBudgetNanosSpec = builder
+            .comment("Maximum time in nanoseconds spent processing networks per server tick (0 = unlimited).",
+                    "Networks that do not fit are carried over to the next tick in rotation.")
+            .defineInRange("networkTickBudgetNanos", 5_000_000L, 0L, 50_000_000L);
+
     static final ModConfigSpec SPEC = builder.build();
 
     public static boolean dropNodeItem;
     public static boolean debugMode;
+    public static long networkTickBudgetNanos = 5_000_000L;
 
     @SubscribeEvent
     static void onLoad(final ModConfigEvent event) {
         if (event.getConfig().getSpec() != SPEC) return;
         dropNodeItem = dropNodeItemSpec.get();
         debugMode = debugModeSpec.get();
+        networkTickBudgetNanos = networkTickBudgetNanosSpec.get();
     }
 }
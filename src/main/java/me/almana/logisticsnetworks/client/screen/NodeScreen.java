@@ -183,9 +183,33 @@ public class NodeScreen extends AbstractContainerScreen<NodeMenu> {
     @Override
     public void render(GuiGraphics g, int mx, int my, float pt) {
         super.render(g, mx, my, pt);
+        renderWeightHint(g, mx, my);
         this.renderTooltip(g, mx, my);
     }
 
+    // Weighted exports split by the import channels' priority, shown on the rows involved
+    private void renderWeightHint(GuiGraphics g, int mx, int my) {
+        if (currentPage != Page.CHANNEL_CONFIG || editingRow >= 0)
+            return;
+        LogisticsNodeEntity node = getMenu().getNode();
+        ChannelData ch = node == null ? null : node.getChannel(selectedChannel);
+        if (ch == null)
+            return;
+
+        int rowH = 13;
+        int startY = topPos + 40;
+        int startX = leftPos + 12;
+        int w = 144;
+        boolean weightedRow = ch.getDistributionMode() == DistributionMode.WEIGHTED && !isSettingDisabled(ch, 5)
+                && isHoveringAbs(startX, startY + rowH * 5, w, rowH, mx, my);
+        boolean priorityRow = ch.getMode().isImporting()
+                && isHoveringAbs(startX, startY + rowH * 6, w, rowH, mx, my);
+        if (weightedRow || priorityRow) {
+            Component hint = Component.translatable("gui.logisticsnetworks.distribution_mode.weighted.hint");
+            g.renderTooltip(font, font.split(hint, 200), mx, my);
+        }
+    }
+
     @Override
     protected void renderBg(GuiGraphics g, float pt, int mx, int my) {
         // Main Background
@@ -476,7 +500,7 @@ public class NodeScreen extends AbstractContainerScreen<NodeMenu> {
     }
 
     private boolean isSettingDisabled(ChannelData ch, int row) {
-        if (ch.getMode() == ChannelMode.IMPORT) {
+        if (ch.getMode().isImporting()) {
             return row == 4 || row == 5 || row == 7 || row == 8;
         }
         return (ch.getType() == ChannelType.ENERGY) && row == 8;
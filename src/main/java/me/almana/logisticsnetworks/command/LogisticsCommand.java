@@ -14,7 +14,6 @@ import net.minecraft.commands.SharedSuggestionProvider;
 import net.minecraft.network.chat.Component;
 import net.minecraft.server.level.ServerLevel;
 import net.minecraft.server.level.ServerPlayer;
-import net.minecraft.world.entity.Entity;
 import net.minecraft.world.phys.AABB;
 
 import java.util.ArrayList;
@@ -127,16 +126,13 @@ public class LogisticsCommand {
         int removedNodes = 0;
         List<UUID> nodeIds = new ArrayList<>(target.getNodeUuids());
         for (UUID nodeId : nodeIds) {
-            for (ServerLevel serverLevel : source.getServer().getAllLevels()) {
-                Entity entity = serverLevel.getEntity(nodeId);
-                if (entity instanceof LogisticsNodeEntity node) {
-                    node.setNetworkId(null);
-                    node.dropFilters();
-                    node.dropUpgrades();
-                    node.discard();
-                    removedNodes++;
-                    break;
-                }
+            LogisticsNodeEntity node = registry.getNodeIndex().get(nodeId);
+            if (node != null) {
+                node.setNetworkId(null);
+                node.dropFilters();
+                node.dropUpgrades();
+                node.discard();
+                removedNodes++;
             }
         }
 
@@ -1,5 +1,6 @@
 package me.almana.logisticsnetworks.data;
 
+import me.almana.logisticsnetworks.logic.FilterProgram;
 import net.minecraft.core.Direction;
 import net.minecraft.core.HolderLookup;
 import net.minecraft.nbt.CompoundTag;
@@ -38,6 +39,10 @@ public class ChannelData {
 
     private final ItemStack[] filterItems = new ItemStack[FILTER_SIZE];
 
+    // Runtime, recompiled lazily after filter edits
+    @Nullable
+    private FilterProgram filterProgram;
+
     public ChannelData() {
         this(false);
     }
@@ -116,6 +121,7 @@ public class ChannelData {
         } else if (provider != null && tag.contains("FilterItem", Tag.TAG_COMPOUND)) {
             filterItems[0] = ItemStack.parseOptional(provider, tag.getCompound("FilterItem"));
         }
+        invalidateFilterProgram();
     }
 
     private <E extends Enum<E>> E getEnum(CompoundTag tag, String key, Class<E> enumClass, E defaultValue) {
@@ -202,8 +208,10 @@ public class ChannelData {
     }
 
     public void setFilterMode(FilterMode filterMode) {
-        if (filterMode != null)
+        if (filterMode != null && filterMode != this.filterMode) {
             this.filterMode = filterMode;
+            invalidateFilterProgram();
+        }
     }
 
     public int getPriority() {
@@ -227,6 +235,18 @@ public class ChannelData {
     public void setFilterItem(int slot, ItemStack stack) {
         if (slot >= 0 && slot < FILTER_SIZE) {
             filterItems[slot] = stack == null ? ItemStack.EMPTY : stack.copyWithCount(1);
+            invalidateFilterProgram();
         }
     }
+
+    public FilterProgram getFilterProgram() {
+        if (filterProgram == null) {
+            filterProgram = FilterProgram.compile(filterItems, filterMode);
+        }
+        return filterProgram;
+    }
+
+    private void invalidateFilterProgram() {
+        filterProgram = null;
+    }
 }
@@ -2,5 +2,11 @@ package me.almana.logisticsnetworks.data;
 
 public enum ChannelMode {
     IMPORT,
-    EXPORT
+    EXPORT,
+    // Imports only while the attached inventory is short of what its filters ask for
+    REQUEST;
+
+    public boolean isImporting() {
+        return this != EXPORT;
+    }
 }
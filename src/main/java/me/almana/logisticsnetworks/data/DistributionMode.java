@@ -5,5 +5,6 @@ public enum DistributionMode {
     NEAREST_FIRST,
     FARTHEST_FIRST,
     ROUND_ROBIN,
-    RECIPE_ROBIN
+    RECIPE_ROBIN,
+    WEIGHTED
 }
@@ -12,11 +12,8 @@ import java.util.Set;
 import java.util.UUID;
 
 import me.almana.logisticsnetworks.entity.LogisticsNodeEntity;
+import me.almana.logisticsnetworks.logic.NetworkExecutionContext;
 import me.almana.logisticsnetworks.upgrade.NodeUpgradeData;
-import net.minecraft.server.MinecraftServer;
-import net.minecraft.server.level.ServerLevel;
-import net.minecraft.world.entity.Entity;
-import net.neoforged.neoforge.server.ServerLifecycleHooks;
 
 public class LogisticsNetwork {
 
@@ -36,6 +33,7 @@ public class LogisticsNetwork {
     // Runtime flags
     private boolean dirty = false;
     private boolean scheduled = false;
+    private int starvedTicks = 0;
 
     @SuppressWarnings("unchecked")
     private final List<NodeRef>[] itemImports = new List[9];
@@ -49,6 +47,10 @@ public class LogisticsNetwork {
     private final List<NodeRef>[] sourceImports = new List[9];
 
     private boolean cacheDirty = true;
+    private final Set<UUID> pendingNodeUpdates = new HashSet<>();
+    // Bumped whenever membership or the import caches change
+    private int topologyVersion = 0;
+    private final NetworkExecutionContext executionContext = new NetworkExecutionContext();
 
     public LogisticsNetwork(UUID id) {
         this(id, "Network-" + id.toString().substring(0, 6));
@@ -114,14 +116,19 @@ public class LogisticsNetwork {
 
     public void addNode(UUID nodeUuid) {
         if (nodeUuid != null) {
-            nodeUuids.add(nodeUuid);
-            markCacheDirty();
+            if (nodeUuids.add(nodeUuid)) {
+                topologyVersion++;
+            }
+            markNodeDirty(nodeUuid);
         }
     }
 
     public void removeNode(UUID nodeUuid) {
-        nodeUuids.remove(nodeUuid);
-        markCacheDirty();
+        if (nodeUuids.remove(nodeUuid)) {
+            pendingNodeUpdates.remove(nodeUuid);
+            removeNodeRefs(nodeUuid);
+            topologyVersion++;
+        }
     }
 
     public UUID getId() {
@@ -176,6 +183,18 @@ public class LogisticsNetwork {
         this.scheduled = scheduled;
     }
 
+    public int getStarvedTicks() {
+        return starvedTicks;
+    }
+
+    public void incrementStarvedTicks() {
+        starvedTicks++;
+    }
+
+    public void resetStarvedTicks() {
+        starvedTicks = 0;
+    }
+
     @Override
     public String toString() {
         return String.format("LogisticsNetwork{id=%s, name='%s', nodes=%d, dirty=%b, sleeping=%b}",
@@ -183,8 +202,8 @@ public class LogisticsNetwork {
     }
 
     public String getDebugInfo() {
-        return String.format("Network %s: %d nodes [Dirty: %b, Scheduled: %b, Sleeping: %b]",
-                id.toString().substring(0, 8), nodeUuids.size(), dirty, scheduled, sleeping);
+        return String.format("Network %s: %d nodes [Dirty: %b, Scheduled: %b, Sleeping: %b, Starved: %d ticks]",
+                id.toString().substring(0, 8), nodeUuids.size(), dirty, scheduled, sleeping, starvedTicks);
     }
 
     public List<NodeRef>[] getItemImports() {
@@ -216,8 +235,21 @@ public class LogisticsNetwork {
         return clone;
     }
 
-    public void markCacheDirty() {
-        this.cacheDirty = true;
+    /**
+     * Queues a single node for reclassification on the next cache refresh.
+     */
+    public void markNodeDirty(UUID nodeUuid) {
+        if (nodeUuids.contains(nodeUuid)) {
+            pendingNodeUpdates.add(nodeUuid);
+        }
+    }
+
+    public int getTopologyVersion() {
+        return topologyVersion;
+    }
+
+    public NetworkExecutionContext getExecutionContext() {
+        return executionContext;
     }
 
     public boolean isCacheDirty() {
@@ -238,23 +270,45 @@ public class LogisticsNetwork {
         }
     }
 
-    public void rebuildCache(NetworkRegistry registry) {
-        clearAllCaches();
-        MinecraftServer server = ServerLifecycleHooks.getCurrentServer();
-        if (server == null) {
+    public void refreshCache(NetworkRegistry registry) {
+        if (cacheDirty) {
+            rebuildCache(registry);
+            cacheDirty = false;
+            pendingNodeUpdates.clear();
+            topologyVersion++;
             return;
         }
-
-        for (UUID nodeId : nodeUuids) {
-            LogisticsNodeEntity node = null;
-            for (ServerLevel level : server.getAllLevels()) {
-                Entity entity = level.getEntity(nodeId);
-                if (entity instanceof LogisticsNodeEntity lne) {
-                    node = lne;
-                    break;
-                }
+        if (pendingNodeUpdates.isEmpty())
+            return;
+        topologyVersion++;
+
+        NodeIndex nodeIndex = registry.getNodeIndex();
+        for (UUID nodeId : pendingNodeUpdates) {
+            removeNodeRefs(nodeId);
+            LogisticsNodeEntity node = nodeIndex.get(nodeId);
+            if (node != null) {
+                classifyNode(node);
             }
+        }
+        pendingNodeUpdates.clear();
+    }
+
+    private void removeNodeRefs(UUID nodeId) {
+        for (int i = 0; i < 9; i++) {
+            itemImports[i].removeIf(ref -> ref.nodeId().equals(nodeId));
+            fluidImports[i].removeIf(ref -> ref.nodeId().equals(nodeId));
+            energyImports[i].removeIf(ref -> ref.nodeId().equals(nodeId));
+            chemicalImports[i].removeIf(ref -> ref.nodeId().equals(nodeId));
+            sourceImports[i].removeIf(ref -> ref.nodeId().equals(nodeId));
+        }
+    }
 
+    public void rebuildCache(NetworkRegistry registry) {
+        clearAllCaches();
+        NodeIndex nodeIndex = registry.getNodeIndex();
+
+        for (UUID nodeId : nodeUuids) {
+            LogisticsNodeEntity node = nodeIndex.get(nodeId);
             if (node == null) {
                 continue;
             }
@@ -272,7 +326,7 @@ public class LogisticsNetwork {
             if (ch == null || !ch.isEnabled()) {
                 continue;
             }
-            if (ch.getMode() != ChannelMode.IMPORT) {
+            if (!ch.getMode().isImporting()) {
                 continue;
             }
             if (ch.getRedstoneMode() != RedstoneMode.ALWAYS_ON) {
@@ -1,6 +1,7 @@
 package me.almana.logisticsnetworks.data;
 
 import com.mojang.logging.LogUtils;
+import me.almana.logisticsnetworks.Config;
 import me.almana.logisticsnetworks.integration.ftbteams.FTBTeamsCompat;
 import me.almana.logisticsnetworks.logic.TransferEngine;
 import net.minecraft.core.HolderLookup;
@@ -26,10 +27,26 @@ public class NetworkRegistry extends SavedData {
     // Limits & Warnings for beta
     private static final int WARNING_NODE_COUNT = 200;
     private static final int WARNING_DISPATCH_COUNT = 50;
+    private static final long WARNING_INTERVAL_TICKS = 20 * 60;
 
     private final Map<UUID, LogisticsNetwork> networks = new HashMap<>();
     private final Set<UUID> dirtyNetworks = new HashSet<>();
 
+    // Networks waiting for a time slice, carried over between ticks in order
+    private final ArrayDeque<UUID> runQueue = new ArrayDeque<>();
+    private final Set<UUID> queuedNetworks = new HashSet<>();
+
+    // Due-time schedule, stale entries are dropped lazily on poll
+    private final PriorityQueue<ScheduledRun> schedule = new PriorityQueue<>(
+            Comparator.comparingLong(ScheduledRun::dueTick));
+    private final Map<UUID, Long> scheduledDueTicks = new HashMap<>();
+
+    private final NodeIndex nodeIndex = new NodeIndex();
+    private long lastLoadWarningTick = -WARNING_INTERVAL_TICKS;
+
+    private record ScheduledRun(long dueTick, UUID networkId) {
+    }
+
     public NetworkRegistry() {
     }
 
@@ -42,29 +59,94 @@ public class NetworkRegistry extends SavedData {
     }
 
     public void processDirtyNetworks(MinecraftServer server) {
-        if (dirtyNetworks.isEmpty())
+        long gameTime = server.overworld().getGameTime();
+        collectDueNetworks(gameTime);
+        if (!dirtyNetworks.isEmpty()) {
+            for (UUID id : dirtyNetworks) {
+                if (queuedNetworks.add(id)) {
+                    runQueue.addLast(id);
+                }
+            }
+            dirtyNetworks.clear();
+        }
+        if (runQueue.isEmpty())
             return;
 
-        if (dirtyNetworks.size() > WARNING_DISPATCH_COUNT) {
-            LOGGER.warn("High load: Dispatching {} dirty networks in one tick.", dirtyNetworks.size());
+        // A backlog is normal under a tick budget, only report it occasionally
+        if (runQueue.size() > WARNING_DISPATCH_COUNT && gameTime - lastLoadWarningTick >= WARNING_INTERVAL_TICKS) {
+            lastLoadWarningTick = gameTime;
+            LOGGER.warn("High load: Dispatching {} dirty networks in one tick.", runQueue.size());
         }
 
-        Set<UUID> snapshot = new HashSet<>(dirtyNetworks);
-        dirtyNetworks.clear();
+        long budget = Config.networkTickBudgetNanos;
+        long start = System.nanoTime();
 
-        for (UUID id : snapshot) {
+        // Always make progress on at least one network per tick
+        while (!runQueue.isEmpty()) {
+            UUID id = runQueue.pollFirst();
+            queuedNetworks.remove(id);
             LogisticsNetwork network = networks.get(id);
             if (network == null)
                 continue;
 
+            unschedule(id);
+            network.resetStarvedTicks();
             try {
-                boolean moreWork = TransferEngine.processNetwork(network, server);
-                if (moreWork) {
-                    dirtyNetworks.add(id);
-                }
+                long nextDue = TransferEngine.processNetwork(network, server);
+                scheduleNetwork(id, nextDue);
             } catch (Exception e) {
                 LOGGER.error("Error processing network {}: {}", id, e.getMessage(), e);
             }
+
+            if (budget > 0 && System.nanoTime() - start >= budget)
+                break;
+        }
+
+        if (!runQueue.isEmpty()) {
+            for (UUID id : runQueue) {
+                LogisticsNetwork network = networks.get(id);
+                if (network != null) {
+                    network.incrementStarvedTicks();
+                }
+            }
+        }
+    }
+
+    private void collectDueNetworks(long gameTime) {
+        while (!schedule.isEmpty() && schedule.peek().dueTick() <= gameTime) {
+            ScheduledRun run = schedule.poll();
+            Long current = scheduledDueTicks.get(run.networkId());
+            if (current == null || current != run.dueTick())
+                continue;
+
+            unschedule(run.networkId());
+            dirtyNetworks.add(run.networkId());
+        }
+    }
+
+    private void scheduleNetwork(UUID id, long dueTick) {
+        if (dueTick == TransferEngine.NO_PENDING_WORK)
+            return;
+
+        LogisticsNetwork network = networks.get(id);
+        if (network == null)
+            return;
+
+        Long current = scheduledDueTicks.get(id);
+        if (current != null && current <= dueTick)
+            return;
+
+        scheduledDueTicks.put(id, dueTick);
+        schedule.add(new ScheduledRun(dueTick, id));
+        network.setScheduled(true);
+    }
+
+    private void unschedule(UUID id) {
+        if (scheduledDueTicks.remove(id) != null) {
+            LogisticsNetwork network = networks.get(id);
+            if (network != null) {
+                network.setScheduled(false);
+            }
         }
     }
 
@@ -102,10 +184,18 @@ public class NetworkRegistry extends SavedData {
     public void deleteNetwork(UUID id) {
         if (networks.remove(id) != null) {
             dirtyNetworks.remove(id);
+            scheduledDueTicks.remove(id);
+            if (queuedNetworks.remove(id)) {
+                runQueue.remove(id);
+            }
             setDirty();
         }
     }
 
+    public NodeIndex getNodeIndex() {
+        return nodeIndex;
+    }
+
     public LogisticsNetwork getNetwork(UUID id) {
         return networks.get(id);
     }
@@ -114,10 +204,28 @@ public class NetworkRegistry extends SavedData {
         return Collections.unmodifiableMap(networks);
     }
 
+    /**
+     * Wakes the network for its next run without touching the import cache.
+     */
     public void markNetworkDirty(UUID networkId) {
         if (networks.containsKey(networkId)) {
             dirtyNetworks.add(networkId);
-            networks.get(networkId).markCacheDirty();
+        }
+    }
+
+    /**
+     * Wakes the network and reclassifies a node whose channels or upgrades changed.
+     */
+    public void markNodeChanged(UUID networkId, UUID nodeId) {
+        LogisticsNetwork network = networks.get(networkId);
+        if (network != null) {
+            network.markNodeDirty(nodeId);
+            dirtyNetworks.add(networkId);
+        }
+        // Side or channel changes may expose a different inventory
+        LogisticsNodeEntity node = nodeIndex.get(nodeId);
+        if (node != null) {
+            node.clearSourceEmpty();
         }
     }
 
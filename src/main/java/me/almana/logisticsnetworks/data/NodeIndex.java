@@ -0,0 +1,119 @@
+package me.almana.logisticsnetworks.data;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import me.almana.logisticsnetworks.entity.LogisticsNodeEntity;
+import net.minecraft.core.BlockPos;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.world.level.Level;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Runtime lookup of loaded node entities by UUID and by attached block
+ * position, kept in sync by entity join/leave events. Never persisted.
+ */
+public class NodeIndex {
+
+    private final Map<UUID, Entry> nodes = new HashMap<>();
+    // Node ids per attached block, resolved through the weak entries above
+    private final Map<ResourceKey<Level>, Long2ObjectMap<List<UUID>>> nodesByPos = new HashMap<>();
+
+    private record Entry(ResourceKey<Level> dimension, WeakReference<LogisticsNodeEntity> ref) {
+    }
+
+    public void register(LogisticsNodeEntity node) {
+        ResourceKey<Level> dimension = node.level().dimension();
+        nodes.put(node.getUUID(), new Entry(dimension, new WeakReference<>(node)));
+
+        List<UUID> atPos = nodesByPos
+                .computeIfAbsent(dimension, key -> new Long2ObjectOpenHashMap<>())
+                .computeIfAbsent(node.getAttachedPos().asLong(), key -> new ArrayList<>(1));
+        if (!atPos.contains(node.getUUID())) {
+            atPos.add(node.getUUID());
+        }
+    }
+
+    public void unregister(LogisticsNodeEntity node) {
+        Entry entry = nodes.get(node.getUUID());
+        // Only drop the entry if it still points at this instance
+        if (entry != null && entry.ref().get() != node)
+            return;
+        nodes.remove(node.getUUID());
+
+        Long2ObjectMap<List<UUID>> dimensionNodes = nodesByPos.get(node.level().dimension());
+        if (dimensionNodes == null)
+            return;
+
+        long key = node.getAttachedPos().asLong();
+        List<UUID> atPos = dimensionNodes.get(key);
+        if (atPos != null && atPos.remove(node.getUUID()) && atPos.isEmpty()) {
+            dimensionNodes.remove(key);
+        }
+    }
+
+    /**
+     * Returns a snapshot of the nodes attached to the given block, safe to
+     * iterate while discarding them.
+     */
+    public List<LogisticsNodeEntity> getNodesAt(ResourceKey<Level> dimension, BlockPos pos) {
+        List<LogisticsNodeEntity> result = new ArrayList<>(1);
+        collectNodesAt(dimension, pos, result);
+        return result.isEmpty() ? List.of() : result;
+    }
+
+    /**
+     * Replaces the contents of {@code out} with the nodes attached to the given
+     * block, for hot paths that reuse one buffer. Ids of nodes that are no
+     * longer loaded are dropped on the way.
+     */
+    public void collectNodesAt(ResourceKey<Level> dimension, BlockPos pos, List<LogisticsNodeEntity> out) {
+        out.clear();
+        Long2ObjectMap<List<UUID>> dimensionNodes = nodesByPos.get(dimension);
+        if (dimensionNodes == null)
+            return;
+
+        long key = pos.asLong();
+        List<UUID> atPos = dimensionNodes.get(key);
+        if (atPos == null)
+            return;
+
+        for (int i = 0; i < atPos.size();) {
+            LogisticsNodeEntity node = get(atPos.get(i));
+            if (node == null) {
+                atPos.remove(i);
+            } else {
+                out.add(node);
+                i++;
+            }
+        }
+        if (atPos.isEmpty()) {
+            dimensionNodes.remove(key);
+        }
+    }
+
+    public boolean hasNodesIn(ResourceKey<Level> dimension) {
+        Long2ObjectMap<List<UUID>> dimensionNodes = nodesByPos.get(dimension);
+        return dimensionNodes != null && !dimensionNodes.isEmpty();
+    }
+
+    @Nullable
+    public LogisticsNodeEntity get(UUID nodeId) {
+        Entry entry = nodes.get(nodeId);
+        if (entry == null)
+            return null;
+
+        LogisticsNodeEntity node = entry.ref().get();
+        if (node == null || node.isRemoved()) {
+            nodes.remove(nodeId);
+            return null;
+        }
+        return node;
+    }
+}
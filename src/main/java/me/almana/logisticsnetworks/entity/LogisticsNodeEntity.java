@@ -1,8 +1,13 @@
 package me.almana.logisticsnetworks.entity;
 
+import it.unimi.dsi.fastutil.objects.Object2LongMap;
+import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
 import me.almana.logisticsnetworks.data.ChannelData;
+import me.almana.logisticsnetworks.data.ChannelMode;
+import me.almana.logisticsnetworks.data.ChannelType;
 import me.almana.logisticsnetworks.integration.ftbteams.FTBTeamsCompat;
 import net.minecraft.core.BlockPos;
+import net.minecraft.core.Direction;
 import net.minecraft.core.HolderLookup;
 import net.minecraft.nbt.CompoundTag;
 import net.minecraft.nbt.ListTag;
@@ -22,12 +27,16 @@ import net.minecraft.world.level.Level;
 import net.minecraft.world.phys.Vec3;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 import me.almana.logisticsnetworks.Config;
 import me.almana.logisticsnetworks.data.NetworkRegistry;
+import me.almana.logisticsnetworks.logic.ItemCountTable;
+import me.almana.logisticsnetworks.logic.NodeCapabilityCache;
 import me.almana.logisticsnetworks.Logisticsnetworks;
 import me.almana.logisticsnetworks.registration.Registration;
 import net.minecraft.server.level.ServerLevel;
@@ -40,6 +49,8 @@ public class LogisticsNodeEntity extends Entity {
 
     public static final int UPGRADE_SLOT_COUNT = 4;
     public static final int CHANNEL_COUNT = 9;
+    // Matches the item backoff ceiling, external drains give no other signal
+    private static final long SATURATION_RETRY_TICKS = 40;
 
     // NBT Keys
     private static final String KEY_ATTACHED_POS = "AttachedPos";
@@ -75,6 +86,16 @@ public class LogisticsNodeEntity extends Entity {
     private final float[] backoffTicks = new float[CHANNEL_COUNT];
     private final int[] recipeCursorEntry = new int[CHANNEL_COUNT];
     private final int[] recipeCursorRemaining = new int[CHANNEL_COUNT];
+    // Runtime only: carried fractional shares of WEIGHTED channels, per target node
+    private final List<Object2LongOpenHashMap<UUID>> weightCredits = new ArrayList<>(CHANNEL_COUNT);
+    private final NodeCapabilityCache capabilityCache = new NodeCapabilityCache(this);
+    // Runtime only: item totals of the attached inventory per side, plus the null side
+    private final ItemCountTable[] itemCountTables = new ItemCountTable[7];
+    // Runtime only: import targets found full, per export channel, with the tick they were seen full
+    private final List<Object2LongMap<UUID>> saturatedTargets = new ArrayList<>(CHANNEL_COUNT);
+    private long contentChangeTick = Long.MIN_VALUE;
+    // Runtime only: tick each export channel last found its source empty, or -1
+    private final long[] sourceEmptySince = new long[CHANNEL_COUNT];
 
     public LogisticsNodeEntity(EntityType<LogisticsNodeEntity> entityType, Level level) {
         super(entityType, level);
@@ -84,9 +105,12 @@ public class LogisticsNodeEntity extends Entity {
 
         for (int i = 0; i < CHANNEL_COUNT; i++) {
             this.channels[i] = new ChannelData();
+            this.saturatedTargets.add(new Object2LongOpenHashMap<>());
+            this.weightCredits.add(new Object2LongOpenHashMap<>());
         }
 
         Arrays.fill(this.upgradeItems, ItemStack.EMPTY);
+        Arrays.fill(this.sourceEmptySince, -1L);
     }
 
     public LogisticsNodeEntity(EntityType<LogisticsNodeEntity> entityType, Level level, BlockPos pos) {
@@ -350,6 +374,103 @@ public class LogisticsNodeEntity extends Entity {
         channelCooldowns[index] = time;
     }
 
+    public NodeCapabilityCache getCapabilityCache() {
+        return capabilityCache;
+    }
+
+    public ItemCountTable getItemCountTable(@Nullable Direction side) {
+        int slot = side == null ? itemCountTables.length - 1 : side.ordinal();
+        if (itemCountTables[slot] == null) {
+            itemCountTables[slot] = new ItemCountTable();
+        }
+        return itemCountTables[slot];
+    }
+
+    public void invalidateItemCounts() {
+        for (ItemCountTable table : itemCountTables) {
+            if (table != null) {
+                table.invalidate();
+            }
+        }
+    }
+
+    /**
+     * Invalidates every side's table except {@code kept}, which already holds
+     * the latest deltas.
+     */
+    public void invalidateItemCounts(ItemCountTable kept) {
+        for (ItemCountTable table : itemCountTables) {
+            if (table != null && table != kept) {
+                table.invalidate();
+            }
+        }
+    }
+
+    /**
+     * Hint that the attached inventory may have gained free space, used to
+     * retry targets that were skipped as full.
+     */
+    public void markContentChanged(long gameTime) {
+        contentChangeTick = gameTime;
+    }
+
+    public long getContentChangeTick() {
+        return contentChangeTick;
+    }
+
+    public long getSourceEmptySince(int channelIndex) {
+        return sourceEmptySince[channelIndex];
+    }
+
+    public void markSourceEmpty(int channelIndex, long gameTime) {
+        sourceEmptySince[channelIndex] = gameTime;
+    }
+
+    public void clearSourceEmpty(int channelIndex) {
+        sourceEmptySince[channelIndex] = -1L;
+    }
+
+    /**
+     * Wakes the enabled export channels of {@code type} that read {@code side}
+     * and sleep on an empty source, so they are due again after their configured
+     * delay. Other channels keep their backoff. Returns whether any was woken.
+     */
+    public boolean wakeChannels(ChannelType type, Direction side) {
+        boolean woke = false;
+        for (int i = 0; i < CHANNEL_COUNT; i++) {
+            ChannelData ch = channels[i];
+            if (sourceEmptySince[i] < 0 || ch == null || !ch.isEnabled())
+                continue;
+            if (ch.getMode() != ChannelMode.EXPORT || ch.getType() != type || ch.getIoDirection() != side)
+                continue;
+            backoffTicks[i] = 0f;
+            sourceEmptySince[i] = -1L;
+            woke = true;
+        }
+        return woke;
+    }
+
+    public void clearSourceEmpty() {
+        Arrays.fill(sourceEmptySince, -1L);
+    }
+
+    public void markTargetSaturated(int channelIndex, UUID targetId, long gameTime) {
+        saturatedTargets.get(channelIndex).put(targetId, gameTime);
+    }
+
+    public boolean isTargetSaturated(int channelIndex, LogisticsNodeEntity target, long gameTime) {
+        Object2LongMap<UUID> saturated = saturatedTargets.get(channelIndex);
+        if (saturated.isEmpty() || !saturated.containsKey(target.getUUID()))
+            return false;
+
+        long since = saturated.getLong(target.getUUID());
+        if (target.contentChangeTick >= since || gameTime - since >= SATURATION_RETRY_TICKS) {
+            saturated.removeLong(target.getUUID());
+            return false;
+        }
+        return true;
+    }
+
     public int getRoundRobinIndex(int channelIndex) {
         return roundRobinIndex[channelIndex];
     }
@@ -366,6 +487,14 @@ public class LogisticsNodeEntity extends Entity {
         }
     }
 
+    /**
+     * Weight credit per target node of a WEIGHTED channel, so reordering or
+     * replacing targets never hands one target's credit to another.
+     */
+    public Object2LongOpenHashMap<UUID> getWeightCredits(int channelIndex) {
+        return weightCredits.get(channelIndex);
+    }
+
     public float getBackoffTicks(int channelIndex) {
         return backoffTicks[channelIndex];
     }
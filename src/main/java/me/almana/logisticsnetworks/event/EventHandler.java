@@ -6,13 +6,16 @@ import me.almana.logisticsnetworks.data.ChannelData;
 import me.almana.logisticsnetworks.data.ChannelMode;
 import me.almana.logisticsnetworks.data.LogisticsNetwork;
 import me.almana.logisticsnetworks.data.NetworkRegistry;
+import me.almana.logisticsnetworks.data.NodeIndex;
 import me.almana.logisticsnetworks.data.RedstoneMode;
 import me.almana.logisticsnetworks.entity.LogisticsNodeEntity;
 import me.almana.logisticsnetworks.filter.FilterItemData;
 import me.almana.logisticsnetworks.integration.mekanism.MekanismCompat;
 import me.almana.logisticsnetworks.item.WrenchItem;
+import me.almana.logisticsnetworks.logic.FilterProgram;
+import me.almana.logisticsnetworks.logic.NodePlacementHelper;
+import me.almana.logisticsnetworks.logic.ResourceBlacklist;
 import me.almana.logisticsnetworks.menu.NodeMenu;
-import me.almana.logisticsnetworks.registration.ModTags;
 import me.almana.logisticsnetworks.registration.Registration;
 import me.almana.logisticsnetworks.upgrade.NodeUpgradeData;
 import net.minecraft.ChatFormatting;
@@ -27,12 +30,13 @@ import net.minecraft.world.inventory.Slot;
 import net.minecraft.world.item.ItemStack;
 import net.minecraft.world.level.Level;
 import net.minecraft.world.level.block.entity.BlockEntity;
-import net.minecraft.world.phys.AABB;
 import net.neoforged.bus.api.SubscribeEvent;
 import net.neoforged.fml.common.EventBusSubscriber;
 import net.neoforged.neoforge.capabilities.Capabilities;
+import net.neoforged.neoforge.event.TagsUpdatedEvent;
 import net.neoforged.neoforge.common.util.TriState;
 import net.neoforged.neoforge.event.entity.EntityJoinLevelEvent;
+import net.neoforged.neoforge.event.entity.EntityLeaveLevelEvent;
 import net.neoforged.neoforge.event.entity.player.PlayerContainerEvent;
 import net.neoforged.neoforge.event.entity.player.PlayerInteractEvent;
 import net.neoforged.neoforge.event.level.BlockEvent;
@@ -48,6 +52,9 @@ import me.almana.logisticsnetworks.command.LogisticsCommand;
 @EventBusSubscriber(modid = Logisticsnetworks.MOD_ID)
 public class EventHandler {
 
+    // Reused by onNeighborUpdate, server thread only
+    private static final List<LogisticsNodeEntity> NEIGHBOR_NODES = new ArrayList<>();
+
     @SubscribeEvent
     public static void onEntityJoinLevel(EntityJoinLevelEvent event) {
         if (!(event.getEntity() instanceof LogisticsNodeEntity node) || node.level().isClientSide())
@@ -55,13 +62,15 @@ public class EventHandler {
         if (!(event.getLevel() instanceof ServerLevel serverLevel))
             return;
 
+        NetworkRegistry registry = NetworkRegistry.get(serverLevel);
+        registry.getNodeIndex().register(node);
+
         UUID networkId = node.getNetworkId();
         if (networkId != null) {
-            NetworkRegistry registry = NetworkRegistry.get(serverLevel);
             LogisticsNetwork network = registry.getNetwork(networkId);
             if (network != null) {
                 node.setNetworkName(network.getName());
-                registry.markNetworkDirty(networkId);
+                registry.markNodeChanged(networkId, node.getUUID());
             } else {
                 node.setNetworkName("Network-" + networkId.toString().substring(0, 6));
             }
@@ -71,6 +80,23 @@ public class EventHandler {
 
     }
 
+    @SubscribeEvent
+    public static void onEntityLeaveLevel(EntityLeaveLevelEvent event) {
+        if (!(event.getEntity() instanceof LogisticsNodeEntity node))
+            return;
+        if (!(event.getLevel() instanceof ServerLevel serverLevel))
+            return;
+
+        // Fires for both removal and chunk unload
+        NetworkRegistry.get(serverLevel).getNodeIndex().unregister(node);
+    }
+
+    @SubscribeEvent
+    public static void onTagsUpdated(TagsUpdatedEvent event) {
+        FilterProgram.onTagsUpdated();
+        ResourceBlacklist.rebuild();
+    }
+
     @SubscribeEvent
     public static void onRegisterCommands(RegisterCommandsEvent event) {
         LogisticsCommand.register(event.getDispatcher());
@@ -92,10 +118,8 @@ public class EventHandler {
         Level level = event.getLevel();
         BlockPos pos = event.getPos();
 
-        List<LogisticsNodeEntity> nodes = level.getEntitiesOfClass(LogisticsNodeEntity.class,
-                new AABB(pos).inflate(0.5));
-        for (LogisticsNodeEntity node : nodes) {
-            if (node.getAttachedPos().equals(pos) && node.isActive()) {
+        for (LogisticsNodeEntity node : NodePlacementHelper.getNodesAttachedAt(level, pos)) {
+            if (node.isActive()) {
                 event.setUseBlock(TriState.FALSE);
                 return;
             }
@@ -107,20 +131,35 @@ public class EventHandler {
         if (event.getLevel().isClientSide() || !(event.getLevel() instanceof ServerLevel level))
             return;
 
-        AABB searchBox = new AABB(event.getPos()).inflate(1.0);
-        List<LogisticsNodeEntity> nodes = level.getEntitiesOfClass(LogisticsNodeEntity.class, searchBox);
         NetworkRegistry registry = NetworkRegistry.get(level);
+        NodeIndex nodeIndex = registry.getNodeIndex();
+        if (!nodeIndex.hasNodesIn(level.dimension()))
+            return;
 
-        for (LogisticsNodeEntity node : nodes) {
-            if (!node.isActive() || node.getNetworkId() == null)
-                continue;
-
-            if (node.getAttachedPos().equals(event.getPos())) {
-                registry.markNetworkDirty(node.getNetworkId());
-            } else if (hasRedstoneSensitiveChannel(node)) {
-                registry.markNetworkDirty(node.getNetworkId());
+        // Nodes attached within one block of the change
+        BlockPos pos = event.getPos();
+        BlockPos.MutableBlockPos cursor = new BlockPos.MutableBlockPos();
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dy = -1; dy <= 1; dy++) {
+                for (int dz = -1; dz <= 1; dz++) {
+                    cursor.setWithOffset(pos, dx, dy, dz);
+                    nodeIndex.collectNodesAt(level.dimension(), cursor, NEIGHBOR_NODES);
+                    for (LogisticsNodeEntity node : NEIGHBOR_NODES) {
+                        if (!node.isActive() || node.getNetworkId() == null)
+                            continue;
+
+                        if (node.getAttachedPos().equals(pos)) {
+                            node.markContentChanged(level.getGameTime());
+                            node.invalidateItemCounts();
+                            registry.markNetworkDirty(node.getNetworkId());
+                        } else if (hasRedstoneSensitiveChannel(node)) {
+                            registry.markNetworkDirty(node.getNetworkId());
+                        }
+                    }
+                }
             }
         }
+        NEIGHBOR_NODES.clear();
     }
 
     private static boolean hasRedstoneSensitiveChannel(LogisticsNodeEntity node) {
@@ -142,22 +181,17 @@ public class EventHandler {
             return;
 
         BlockPos pos = event.getPos();
-        List<LogisticsNodeEntity> nodes = serverLevel.getEntitiesOfClass(LogisticsNodeEntity.class,
-                new AABB(pos).inflate(0.1));
-
-        for (LogisticsNodeEntity node : nodes) {
-            if (node.getAttachedPos().equals(pos)) {
-                if (node.getNetworkId() != null) {
-                    NetworkRegistry.get(serverLevel).removeNodeFromNetwork(node.getNetworkId(), node.getUUID());
-                }
+        for (LogisticsNodeEntity node : NodePlacementHelper.getNodesAttachedAt(serverLevel, pos)) {
+            if (node.getNetworkId() != null) {
+                NetworkRegistry.get(serverLevel).removeNodeFromNetwork(node.getNetworkId(), node.getUUID());
+            }
 
-                if (Config.dropNodeItem) {
-                    node.spawnAtLocation(Registration.LOGISTICS_NODE_ITEM.get());
-                }
-                node.dropFilters();
-                node.dropUpgrades();
-                node.discard();
+            if (Config.dropNodeItem) {
+                node.spawnAtLocation(Registration.LOGISTICS_NODE_ITEM.get());
             }
+            node.dropFilters();
+            node.dropUpgrades();
+            node.discard();
         }
     }
 
@@ -186,7 +220,7 @@ public class EventHandler {
         if (itemHandler != null) {
             for (int slot = 0; slot < itemHandler.getSlots(); slot++) {
                 ItemStack stack = itemHandler.getStackInSlot(slot);
-                if (!stack.isEmpty() && stack.is(ModTags.RESOURCE_BLACKLIST_ITEMS)) {
+                if (ResourceBlacklist.isBlacklisted(stack)) {
                     String id = BuiltInRegistries.ITEM.getKey(stack.getItem()).toString();
                     if (!ids.contains(id))
                         ids.add(id);
@@ -198,8 +232,7 @@ public class EventHandler {
         if (fluidHandler != null) {
             for (int tank = 0; tank < fluidHandler.getTanks(); tank++) {
                 FluidStack fluid = fluidHandler.getFluidInTank(tank);
-                if (!fluid.isEmpty()
-                        && fluid.getFluid().builtInRegistryHolder().is(ModTags.RESOURCE_BLACKLIST_FLUIDS)) {
+                if (ResourceBlacklist.isBlacklisted(fluid)) {
                     String id = BuiltInRegistries.FLUID.getKey(fluid.getFluid()).toString();
                     if (!ids.contains(id))
                         ids.add(id);
@@ -258,10 +291,10 @@ public class EventHandler {
         }
 
         if (containerPos != null) {
-            List<LogisticsNodeEntity> nodes = level.getEntitiesOfClass(LogisticsNodeEntity.class,
-                    new AABB(containerPos).inflate(0.1));
-            for (LogisticsNodeEntity node : nodes) {
-                if (node.isActive() && node.getNetworkId() != null && node.getAttachedPos().equals(containerPos)) {
+            for (LogisticsNodeEntity node : NodePlacementHelper.getNodesAttachedAt(level, containerPos)) {
+                node.markContentChanged(level.getGameTime());
+                node.invalidateItemCounts();
+                if (node.isActive() && node.getNetworkId() != null) {
                     NetworkRegistry.get(level).markNetworkDirty(node.getNetworkId());
                 }
             }
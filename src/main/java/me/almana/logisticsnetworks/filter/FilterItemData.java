@@ -2,20 +2,25 @@ package me.almana.logisticsnetworks.filter;
 
 import me.almana.logisticsnetworks.integration.mekanism.MekanismCompat;
 import me.almana.logisticsnetworks.item.BaseFilterItem;
+import it.unimi.dsi.fastutil.objects.ReferenceOpenHashSet;
 import net.minecraft.core.HolderLookup;
+import net.minecraft.core.registries.Registries;
 import net.minecraft.core.component.DataComponents;
 import net.minecraft.core.registries.BuiltInRegistries;
 import net.minecraft.nbt.CompoundTag;
 import net.minecraft.nbt.ListTag;
 import net.minecraft.nbt.Tag;
 import net.minecraft.resources.ResourceLocation;
+import net.minecraft.tags.TagKey;
 import net.minecraft.world.item.Item;
 import net.minecraft.world.item.ItemStack;
 import net.minecraft.world.item.component.CustomData;
+import net.minecraft.world.level.material.Fluid;
 import net.neoforged.neoforge.fluids.FluidStack;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.IdentityHashMap;
+import java.util.Set;
 import java.util.function.Consumer;
 import net.minecraft.nbt.TagParser;
 import org.jetbrains.annotations.Nullable;
@@ -43,6 +48,81 @@ public final class FilterItemData {
 
         private ReadCache() {
         }
+
+        public void clear() {
+            itemViews.clear();
+        }
+    }
+
+    /**
+     * Item entries of one filter resolved up front: plain items as a set, tags as
+     * TagKeys, and only NBT/durability-constrained entries checked one by one.
+     */
+    public static final class CompiledItemEntries {
+        private final Set<Item> items;
+        private final List<TagKey<Item>> tags;
+        private final ItemFilterSlot[] constrained;
+
+        private CompiledItemEntries(Set<Item> items, List<TagKey<Item>> tags, ItemFilterSlot[] constrained) {
+            this.items = items;
+            this.tags = tags;
+            this.constrained = constrained;
+        }
+
+        public boolean matches(ItemStack candidate, HolderLookup.Provider provider,
+                @Nullable CompoundTag candidateComponents) {
+            if (candidate.isEmpty())
+                return false;
+            if (items.contains(candidate.getItem()))
+                return true;
+            for (TagKey<Item> tag : tags) {
+                if (candidate.is(tag))
+                    return true;
+            }
+            if (constrained.length == 0)
+                return false;
+
+            CompoundTag resolvedCandidateComponents = candidateComponents;
+            boolean candidateComponentsResolved = candidateComponents != null;
+            for (ItemFilterSlot entry : constrained) {
+                if (entry.nbtOnly()) {
+                    if (!candidateComponentsResolved) {
+                        resolvedCandidateComponents = NbtFilterData.getSerializedComponents(candidate, provider);
+                        candidateComponentsResolved = true;
+                    }
+                    if (checkNbtConstraint(entry, resolvedCandidateComponents))
+                        return true;
+                    continue;
+                }
+
+                if (entry.item() != candidate.getItem())
+                    continue;
+                if (entry.hasNbt()) {
+                    if (!candidateComponentsResolved) {
+                        resolvedCandidateComponents = NbtFilterData.getSerializedComponents(candidate, provider);
+                        candidateComponentsResolved = true;
+                    }
+                    if (!checkNbtConstraint(entry, resolvedCandidateComponents))
+                        continue;
+                }
+                if (checkDurabilityConstraint(entry, candidate))
+                    return true;
+            }
+            return false;
+        }
+
+        /**
+         * True when matching only depends on the item type: no NBT or durability
+         * constrained entries.
+         */
+        public boolean isPlain() {
+            return constrained.length == 0;
+        }
+
+        public void collectPlain(Set<Item> outItems, List<TagKey<Item>> outTags) {
+            outItems.addAll(items);
+            outTags.addAll(tags);
+        }
     }
 
     private record ItemFilterSlot(
@@ -679,7 +759,8 @@ public final class FilterItemData {
 
             String tag = entry.tag();
             if (tag != null) {
-                if (candidate.getTags().map(t -> t.location().toString()).anyMatch(tag::equals)) {
+                TagKey<Item> tagKey = FilterTagUtil.itemTagKey(tag);
+                if (tagKey != null && candidate.is(tagKey)) {
                     return true;
                 }
                 continue;
@@ -714,6 +795,30 @@ public final class FilterItemData {
         return false;
     }
 
+    public static CompiledItemEntries compileItemEntries(ItemStack filter) {
+        Set<Item> items = new ReferenceOpenHashSet<>();
+        List<TagKey<Item>> tags = new ArrayList<>();
+        List<ItemFilterSlot> constrained = new ArrayList<>();
+        if (isFilterItem(filter)) {
+            for (ItemFilterSlot entry : getItemFilterView(filter, null).entriesBySlot()) {
+                if (entry == null)
+                    continue;
+
+                if (entry.tag() != null) {
+                    ResourceLocation tagId = ResourceLocation.tryParse(entry.tag());
+                    if (tagId != null) {
+                        tags.add(TagKey.create(Registries.ITEM, tagId));
+                    }
+                } else if (entry.nbtOnly() || (entry.item() != null && (entry.hasNbt() || entry.durOp() != null))) {
+                    constrained.add(entry);
+                } else if (entry.item() != null) {
+                    items.add(entry.item());
+                }
+            }
+        }
+        return new CompiledItemEntries(items, List.copyOf(tags), constrained.toArray(new ItemFilterSlot[0]));
+    }
+
     public static boolean containsFluidFull(ItemStack filter, FluidStack candidate, HolderLookup.Provider provider) {
         if (!isFilterItem(filter) || candidate.isEmpty())
             return false;
@@ -722,7 +827,8 @@ public final class FilterItemData {
         for (int i = 0; i < cap; i++) {
             String tag = getEntryTag(filter, i);
             if (tag != null) {
-                if (candidate.getTags().map(t -> t.location().toString()).anyMatch(tag::equals)) {
+                TagKey<Fluid> tagKey = FilterTagUtil.fluidTagKey(tag);
+                if (tagKey != null && candidate.is(tagKey)) {
                     return true;
                 }
                 continue;
@@ -783,7 +889,8 @@ public final class FilterItemData {
 
             String tag = entry.tag();
             if (tag != null) {
-                if (candidate.getTags().map(t -> t.location().toString()).anyMatch(tag::equals))
+                TagKey<Item> tagKey = FilterTagUtil.itemTagKey(tag);
+                if (tagKey != null && candidate.is(tagKey))
                     return entry.amount();
                 continue;
             }
@@ -814,7 +921,8 @@ public final class FilterItemData {
         for (int i = 0; i < cap; i++) {
             String tag = getEntryTag(filter, i);
             if (tag != null) {
-                if (candidate.getTags().map(t -> t.location().toString()).anyMatch(tag::equals))
+                TagKey<Fluid> tagKey = FilterTagUtil.fluidTagKey(tag);
+                if (tagKey != null && candidate.is(tagKey))
                     return getEntryAmount(filter, i);
                 continue;
             }
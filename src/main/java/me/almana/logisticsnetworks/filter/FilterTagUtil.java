@@ -1,13 +1,50 @@
 package me.almana.logisticsnetworks.filter;
 
+import net.minecraft.core.Registry;
+import net.minecraft.core.registries.Registries;
+import net.minecraft.resources.ResourceKey;
 import net.minecraft.resources.ResourceLocation;
+import net.minecraft.tags.TagKey;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.level.material.Fluid;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 public final class FilterTagUtil {
 
+    // TagKeys are interned and survive tag reloads, so these never need clearing
+    private static final Map<String, TagKey<Item>> ITEM_TAG_KEYS = new ConcurrentHashMap<>();
+    private static final Map<String, TagKey<Fluid>> FLUID_TAG_KEYS = new ConcurrentHashMap<>();
+
     private FilterTagUtil() {
     }
 
+    @Nullable
+    public static TagKey<Item> itemTagKey(String tagId) {
+        return resolveTagKey(ITEM_TAG_KEYS, Registries.ITEM, tagId);
+    }
+
+    @Nullable
+    public static TagKey<Fluid> fluidTagKey(String tagId) {
+        return resolveTagKey(FLUID_TAG_KEYS, Registries.FLUID, tagId);
+    }
+
+    @Nullable
+    private static <T> TagKey<T> resolveTagKey(Map<String, TagKey<T>> cache,
+            ResourceKey<? extends Registry<T>> registry, String tagId) {
+        TagKey<T> key = cache.get(tagId);
+        if (key == null) {
+            ResourceLocation id = ResourceLocation.tryParse(tagId);
+            if (id == null)
+                return null;
+            key = TagKey.create(registry, id);
+            cache.put(tagId, key);
+        }
+        return key;
+    }
+
     @Nullable
     public static String normalizeTag(@Nullable String tagValue) {
         if (tagValue == null) {
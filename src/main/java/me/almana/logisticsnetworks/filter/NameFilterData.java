@@ -11,8 +11,14 @@ import net.minecraft.world.item.ItemStack;
 import net.minecraft.world.item.TooltipFlag;
 import net.minecraft.world.item.component.CustomData;
 import net.neoforged.neoforge.fluids.FluidStack;
+import org.jetbrains.annotations.Nullable;
 
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -25,6 +31,15 @@ public final class NameFilterData {
     private static final String KEY_NAME = "name";
     private static final String KEY_TARGET_TYPE = "target";
     private static final String KEY_MATCH_SCOPE = "scope";
+    private static final int MATCHER_CACHE_SIZE = 128;
+
+    private static final Map<String, NameMatcher> MATCHER_CACHE = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, NameMatcher> eldest) {
+                    return size() > MATCHER_CACHE_SIZE;
+                }
+            });
 
     private NameFilterData() {
     }
@@ -140,18 +155,14 @@ public final class NameFilterData {
         if (regex.isEmpty())
             return false;
 
-        Pattern pattern;
-        try {
-            pattern = Pattern.compile(regex, Pattern.CASE_INSENSITIVE);
-        } catch (PatternSyntaxException e) {
+        NameMatcher matcher = getMatcher(regex);
+        if (!matcher.isValid())
             return false;
-        }
 
         NameMatchScope scope = getMatchScope(filter);
 
         if (scope == NameMatchScope.NAME || scope == NameMatchScope.BOTH) {
-            String candidateName = candidate.getHoverName().getString();
-            if (pattern.matcher(candidateName).find())
+            if (matcher.matchesItemName(candidate))
                 return true;
         }
 
@@ -160,7 +171,7 @@ public final class NameFilterData {
                     Item.TooltipContext.EMPTY, null, TooltipFlag.NORMAL);
             for (int i = (scope == NameMatchScope.BOTH ? 1 : 0); i < tooltipLines.size(); i++) {
                 String line = tooltipLines.get(i).getString();
-                if (pattern.matcher(line).find())
+                if (matcher.matches(line))
                     return true;
             }
         }
@@ -178,16 +189,11 @@ public final class NameFilterData {
         if (regex.isEmpty())
             return false;
 
-        Pattern pattern;
-        try {
-            pattern = Pattern.compile(regex, Pattern.CASE_INSENSITIVE);
-        } catch (PatternSyntaxException e) {
-            return false;
-        }
+        NameMatcher matcher = getMatcher(regex);
 
         // Fluids don't have rich tooltips, match against display name for all scopes
         String candidateName = candidate.getHoverName().getString();
-        return pattern.matcher(candidateName).find();
+        return matcher.matches(candidateName);
     }
 
     public static boolean containsName(ItemStack filter, String chemicalId) {
@@ -200,15 +206,103 @@ public final class NameFilterData {
         if (regex.isEmpty())
             return false;
 
-        Pattern pattern;
-        try {
-            pattern = Pattern.compile(regex, Pattern.CASE_INSENSITIVE);
-        } catch (PatternSyntaxException e) {
-            return false;
-        }
+        NameMatcher matcher = getMatcher(regex);
         Component chemName = MekanismCompat.getChemicalTextComponent(chemicalId);
         String displayName = chemName != null ? chemName.getString() : chemicalId;
-        return pattern.matcher(displayName).find();
+        return matcher.matches(displayName);
+    }
+
+    private static NameMatcher getMatcher(String regex) {
+        NameMatcher matcher = MATCHER_CACHE.get(regex);
+        if (matcher == null) {
+            matcher = NameMatcher.compile(regex);
+            MATCHER_CACHE.put(regex, matcher);
+        }
+        return matcher;
+    }
+
+    /**
+     * Compiled form of a name filter. Patterns without regex syntax are matched
+     * as plain case-insensitive substrings or prefixes.
+     */
+    private static final class NameMatcher {
+        private static final String REGEX_META = "\\.[]{}()<>*+-=!?^$|";
+
+        @Nullable
+        private final Pattern pattern;
+        @Nullable
+        private final String literal;
+        private final boolean prefix;
+        private final Map<Item, Boolean> itemNameResults = new ConcurrentHashMap<>();
+
+        private NameMatcher(@Nullable Pattern pattern, @Nullable String literal, boolean prefix) {
+            this.pattern = pattern;
+            this.literal = literal;
+            this.prefix = prefix;
+        }
+
+        private static NameMatcher compile(String regex) {
+            boolean prefix = regex.startsWith("^");
+            String body = prefix ? regex.substring(1) : regex;
+            if (isPlainAscii(body)) {
+                return new NameMatcher(null, body.toLowerCase(Locale.ROOT), prefix);
+            }
+            try {
+                return new NameMatcher(Pattern.compile(regex, Pattern.CASE_INSENSITIVE), null, false);
+            } catch (PatternSyntaxException e) {
+                return new NameMatcher(null, null, false);
+            }
+        }
+
+        // CASE_INSENSITIVE without UNICODE_CASE only folds ASCII, so only ASCII
+        // literals take the fast path
+        private static boolean isPlainAscii(String text) {
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c > 0x7F || REGEX_META.indexOf(c) >= 0)
+                    return false;
+            }
+            return true;
+        }
+
+        boolean isValid() {
+            return pattern != null || literal != null;
+        }
+
+        boolean matches(String text) {
+            if (literal != null) {
+                if (prefix)
+                    return regionMatchesAscii(text, 0);
+                for (int i = 0; i <= text.length() - literal.length(); i++) {
+                    if (regionMatchesAscii(text, i))
+                        return true;
+                }
+                return false;
+            }
+            return pattern != null && pattern.matcher(text).find();
+        }
+
+        boolean matchesItemName(ItemStack candidate) {
+            // Without a component patch the name comes from the item type alone
+            if (candidate.getComponentsPatch().isEmpty()) {
+                return itemNameResults.computeIfAbsent(candidate.getItem(),
+                        item -> matches(candidate.getHoverName().getString()));
+            }
+            return matches(candidate.getHoverName().getString());
+        }
+
+        private boolean regionMatchesAscii(String text, int offset) {
+            if (offset + literal.length() > text.length())
+                return false;
+            for (int i = 0; i < literal.length(); i++) {
+                char c = text.charAt(offset + i);
+                if (c >= 'A' && c <= 'Z')
+                    c = (char) (c + ('a' - 'A'));
+                if (c != literal.charAt(i))
+                    return false;
+            }
+            return true;
+        }
     }
 
     private static String normalizeName(String name) {
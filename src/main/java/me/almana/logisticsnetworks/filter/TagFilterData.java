@@ -8,14 +8,15 @@ import net.minecraft.nbt.ListTag;
 import net.minecraft.nbt.StringTag;
 import net.minecraft.nbt.Tag;
 import net.minecraft.resources.ResourceLocation;
+import net.minecraft.tags.TagKey;
+import net.minecraft.world.item.Item;
 import net.minecraft.world.item.ItemStack;
 import net.minecraft.world.item.component.CustomData;
+import net.minecraft.world.level.material.Fluid;
 import net.neoforged.neoforge.fluids.FluidStack;
 
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 
 public final class TagFilterData {
 
@@ -182,8 +183,13 @@ public final class TagFilterData {
             return false;
         }
 
-        Set<String> tagSet = new HashSet<>(filterTags);
-        return candidate.getTags().map(tag -> tag.location().toString()).anyMatch(tagSet::contains);
+        for (String tag : filterTags) {
+            TagKey<Item> key = FilterTagUtil.itemTagKey(tag);
+            if (key != null && candidate.is(key)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     public static boolean containsTag(ItemStack filterStack, FluidStack candidate) {
@@ -199,8 +205,13 @@ public final class TagFilterData {
             return false;
         }
 
-        Set<String> tagSet = new HashSet<>(filterTags);
-        return candidate.getTags().map(tag -> tag.location().toString()).anyMatch(tagSet::contains);
+        for (String tag : filterTags) {
+            TagKey<Fluid> key = FilterTagUtil.fluidTagKey(tag);
+            if (key != null && candidate.is(key)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     public static boolean containsTag(ItemStack filterStack, String chemicalId) {
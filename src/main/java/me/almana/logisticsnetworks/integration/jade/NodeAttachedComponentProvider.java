@@ -3,12 +3,12 @@ package me.almana.logisticsnetworks.integration.jade;
 import me.almana.logisticsnetworks.Logisticsnetworks;
 import me.almana.logisticsnetworks.entity.LogisticsNodeEntity;
 import me.almana.logisticsnetworks.item.WrenchItem;
+import me.almana.logisticsnetworks.logic.NodePlacementHelper;
 import net.minecraft.nbt.CompoundTag;
 import net.minecraft.network.chat.Component;
 import net.minecraft.resources.ResourceLocation;
 import net.minecraft.world.entity.player.Player;
 import net.minecraft.world.item.ItemStack;
-import net.minecraft.world.phys.AABB;
 import snownee.jade.api.BlockAccessor;
 import snownee.jade.api.IBlockComponentProvider;
 import snownee.jade.api.IServerDataProvider;
@@ -26,11 +26,10 @@ public enum NodeAttachedComponentProvider implements IBlockComponentProvider, IS
 
     @Override
     public void appendServerData(CompoundTag data, BlockAccessor accessor) {
-        List<LogisticsNodeEntity> nodes = accessor.getLevel().getEntitiesOfClass(
-                LogisticsNodeEntity.class,
-                new AABB(accessor.getPosition()).inflate(0.5));
+        List<LogisticsNodeEntity> nodes = NodePlacementHelper.getNodesAttachedAt(accessor.getLevel(),
+                accessor.getPosition());
         for (LogisticsNodeEntity node : nodes) {
-            if (node.getAttachedPos().equals(accessor.getPosition()) && node.isActive()) {
+            if (node.isActive()) {
                 data.putBoolean(KEY_HAS_NODE, true);
                 return;
             }
@@ -6,11 +6,13 @@ import mekanism.api.MekanismAPI;
 import mekanism.api.chemical.Chemical;
 import mekanism.api.chemical.ChemicalStack;
 import mekanism.api.chemical.IChemicalHandler;
+import it.unimi.dsi.fastutil.objects.ReferenceOpenHashSet;
 import me.almana.logisticsnetworks.Config;
-import me.almana.logisticsnetworks.data.FilterMode;
-import me.almana.logisticsnetworks.logic.FilterLogic;
+import me.almana.logisticsnetworks.entity.LogisticsNodeEntity;
+import me.almana.logisticsnetworks.logic.FilterProgram;
 import net.minecraft.core.BlockPos;
 import net.minecraft.core.Direction;
+import net.minecraft.core.Holder;
 import net.minecraft.core.registries.BuiltInRegistries;
 import net.minecraft.resources.ResourceLocation;
 import net.minecraft.server.level.ServerLevel;
@@ -23,6 +25,7 @@ import org.slf4j.Logger;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 public final class ChemicalTransferHelper {
 
@@ -32,9 +35,23 @@ public final class ChemicalTransferHelper {
             MekanismAPI.CHEMICAL_REGISTRY_NAME,
             ResourceLocation.fromNamespaceAndPath("logisticsnetworks", "blacklist/chemicals"));
 
+    private static volatile Set<Chemical> blacklistedChemicals = Set.of();
+
     private ChemicalTransferHelper() {
     }
 
+    public static void rebuildBlacklist() {
+        Set<Chemical> chemicals = new ReferenceOpenHashSet<>();
+        for (Holder<Chemical> holder : MekanismAPI.CHEMICAL_REGISTRY.getTagOrEmpty(RESOURCE_BLACKLIST_CHEMICALS)) {
+            chemicals.add(holder.value());
+        }
+        blacklistedChemicals = chemicals;
+    }
+
+    private static boolean isBlacklisted(ChemicalStack stack) {
+        return !stack.isEmpty() && blacklistedChemicals.contains(stack.getChemical());
+    }
+
     @Nullable
     public static IChemicalHandler getHandler(ServerLevel level, BlockPos pos, Direction side) {
         return level.getCapability(mekanism.common.capabilities.Capabilities.CHEMICAL.block(), pos, side);
@@ -57,7 +74,7 @@ public final class ChemicalTransferHelper {
             return names;
         for (int tank = 0; tank < handler.getChemicalTanks(); tank++) {
             ChemicalStack stack = handler.getChemicalInTank(tank);
-            if (!stack.isEmpty() && stack.is(RESOURCE_BLACKLIST_CHEMICALS)) {
+            if (isBlacklisted(stack)) {
                 String name = stack.getTextComponent().getString();
                 if (!names.contains(name))
                     names.add(name);
@@ -122,17 +139,24 @@ public final class ChemicalTransferHelper {
         return null;
     }
 
-    public static long transferBetween(ServerLevel sourceLevel, BlockPos sourcePos, Direction sourceSide,
-            ServerLevel targetLevel, BlockPos targetPos, Direction targetSide, long limit,
-            ItemStack[] exportFilters, FilterMode exportFilterMode,
-            ItemStack[] importFilters, FilterMode importFilterMode) {
-        IChemicalHandler source = getHandler(sourceLevel, sourcePos, sourceSide);
+    @Nullable
+    public static IChemicalHandler getHandler(LogisticsNodeEntity node, Direction side) {
+        return node.getCapabilityCache().getCapability(mekanism.common.capabilities.Capabilities.CHEMICAL.block(),
+                side);
+    }
+
+    public static long transferBetween(LogisticsNodeEntity sourceNode, Direction sourceSide,
+            LogisticsNodeEntity targetNode, Direction targetSide, long limit,
+            FilterProgram exportProgram, FilterProgram importProgram) {
+        BlockPos sourcePos = sourceNode.getAttachedPos();
+        BlockPos targetPos = targetNode.getAttachedPos();
+        IChemicalHandler source = getHandler(sourceNode, sourceSide);
         if (source == null) {
             if (Config.debugMode)
                 LOGGER.debug("[Chemical] No source handler at {} side {}", sourcePos, sourceSide);
             return 0;
         }
-        IChemicalHandler target = getHandler(targetLevel, targetPos, targetSide);
+        IChemicalHandler target = getHandler(targetNode, targetSide);
         if (target == null) {
             if (Config.debugMode)
                 LOGGER.debug("[Chemical] No target handler at {} side {}", targetPos, targetSide);
@@ -141,13 +165,11 @@ public final class ChemicalTransferHelper {
         if (Config.debugMode)
             LOGGER.debug("[Chemical] Transferring {} -> {}, limit={}, srcTanks={}, tgtTanks={}",
                     sourcePos, targetPos, limit, source.getChemicalTanks(), target.getChemicalTanks());
-        return executeChemicalMove(source, target, limit, exportFilters, exportFilterMode,
-                importFilters, importFilterMode);
+        return executeChemicalMove(source, target, limit, exportProgram, importProgram);
     }
 
     private static long executeChemicalMove(IChemicalHandler source, IChemicalHandler target, long limitAmount,
-            ItemStack[] exportFilters, FilterMode exportFilterMode,
-            ItemStack[] importFilters, FilterMode importFilterMode) {
+            FilterProgram exportProgram, FilterProgram importProgram) {
         long remaining = limitAmount;
 
         for (int tank = 0; tank < source.getChemicalTanks(); tank++) {
@@ -157,14 +179,14 @@ public final class ChemicalTransferHelper {
             ChemicalStack tankChemical = source.getChemicalInTank(tank);
             if (tankChemical.isEmpty())
                 continue;
-            if (tankChemical.is(RESOURCE_BLACKLIST_CHEMICALS))
+            if (isBlacklisted(tankChemical))
                 continue;
 
             String chemId = getChemicalId(tankChemical);
             if (chemId != null) {
-                if (!FilterLogic.matchesChemical(exportFilters, exportFilterMode, chemId))
+                if (!exportProgram.matchesChemical(chemId))
                     continue;
-                if (!FilterLogic.matchesChemical(importFilters, importFilterMode, chemId))
+                if (!importProgram.matchesChemical(chemId))
                     continue;
             }
 
@@ -38,6 +38,12 @@ public final class MekanismCompat {
         return ChemicalTransferHelper.getBlacklistedChemicalNames(level, pos);
     }
 
+    public static void rebuildChemicalBlacklist() {
+        if (!isLoaded())
+            return;
+        ChemicalTransferHelper.rebuildBlacklist();
+    }
+
     public static boolean chemicalHasTag(String chemicalId, String tagId) {
         if (!isLoaded())
             return false;
@@ -40,7 +40,6 @@ import net.minecraft.world.item.component.CustomData;
 import net.minecraft.world.item.context.UseOnContext;
 import net.minecraft.world.level.Level;
 import net.minecraft.world.level.block.state.BlockState;
-import net.minecraft.world.phys.AABB;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayDeque;
@@ -642,10 +641,8 @@ public class WrenchItem extends Item {
 
     @Nullable
     private static LogisticsNodeEntity findNodeAt(Level level, BlockPos pos) {
-        List<LogisticsNodeEntity> nodes = level.getEntitiesOfClass(LogisticsNodeEntity.class,
-                new AABB(pos).inflate(0.5));
-        for (LogisticsNodeEntity node : nodes) {
-            if (node.getAttachedPos().equals(pos) && node.isActive()) {
+        for (LogisticsNodeEntity node : NodePlacementHelper.getNodesAttachedAt(level, pos)) {
+            if (node.isActive()) {
                 return node;
             }
         }
@@ -736,7 +733,7 @@ public class WrenchItem extends Item {
 
     private static void markNodeNetworkDirty(LogisticsNodeEntity node) {
         if (node.getNetworkId() != null && node.level() instanceof ServerLevel serverLevel) {
-            NetworkRegistry.get(serverLevel).markNetworkDirty(node.getNetworkId());
+            NetworkRegistry.get(serverLevel).markNodeChanged(node.getNetworkId(), node.getUUID());
         }
     }
 
@@ -0,0 +1,216 @@
+package me.almana.logisticsnetworks.logic;
+
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ReferenceOpenHashSet;
+import me.almana.logisticsnetworks.data.ChannelData;
+import me.almana.logisticsnetworks.data.ChannelMode;
+import me.almana.logisticsnetworks.data.ChannelType;
+import me.almana.logisticsnetworks.entity.LogisticsNodeEntity;
+import me.almana.logisticsnetworks.filter.AmountFilterData;
+import net.minecraft.core.Direction;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.item.ItemStack;
+import net.neoforged.neoforge.capabilities.Capabilities;
+import net.neoforged.neoforge.items.IItemHandler;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Outstanding demand of the REQUEST item targets of a network, indexed per
+ * channel from wanted item to the requesters short of it. A requester wants
+ * each item its filters route until it holds the amount filter's threshold, or
+ * one stack without an amount filter; requesters whose filters cannot be
+ * enumerated want everything. A requester is re-read when its inventory
+ * changes or {@link #RECHECK_TICKS} pass.
+ */
+final class DemandIndex {
+
+    static final int RECHECK_TICKS = 20;
+    private static final int CHANNELS = 9;
+
+    private static final class Request {
+        final TransferEngine.ImportTarget target;
+        final Set<Item> missing = new ReferenceOpenHashSet<>();
+        long checkedTick = -1;
+        boolean unbounded;
+        int keep;
+        @Nullable
+        ItemCountTable counts;
+        @Nullable
+        IItemHandler handler;
+
+        Request(TransferEngine.ImportTarget target) {
+            this.target = target;
+        }
+    }
+
+    private final Reference2ObjectOpenHashMap<TransferEngine.ImportTarget, Request> requests =
+            new Reference2ObjectOpenHashMap<>();
+    private final List<List<Request>> requesters = new ArrayList<>(CHANNELS);
+    private final List<Reference2ObjectOpenHashMap<Item, List<TransferEngine.ImportTarget>>> wanted =
+            new ArrayList<>(CHANNELS);
+    private final boolean[] requestOnly = new boolean[CHANNELS];
+
+    DemandIndex() {
+        for (int i = 0; i < CHANNELS; i++) {
+            requesters.add(new ArrayList<>());
+            wanted.add(new Reference2ObjectOpenHashMap<>());
+        }
+    }
+
+    void rebuild(NetworkExecutionContext context) {
+        requests.clear();
+        for (int i = 0; i < CHANNELS; i++) {
+            List<TransferEngine.ImportTarget> targets = context.imports(ChannelType.ITEM, i);
+            List<Request> channelRequesters = requesters.get(i);
+            channelRequesters.clear();
+            wanted.get(i).clear();
+            for (TransferEngine.ImportTarget target : targets) {
+                if (target.channel().getMode() == ChannelMode.REQUEST) {
+                    Request request = new Request(target);
+                    channelRequesters.add(request);
+                    requests.put(target, request);
+                }
+            }
+            requestOnly[i] = !targets.isEmpty() && channelRequesters.size() == targets.size();
+        }
+    }
+
+    /**
+     * True when every item import target on the channel is a requester, so an
+     * exporter has nothing to do while none of them want anything.
+     */
+    boolean isRequestOnly(int channel) {
+        return requestOnly[channel];
+    }
+
+    boolean isRequester(TransferEngine.ImportTarget target) {
+        return requests.containsKey(target);
+    }
+
+    boolean hasDemand(int channel, long gameTime) {
+        List<Request> channelRequesters = requesters.get(channel);
+        boolean unbounded = false;
+        for (int i = 0; i < channelRequesters.size(); i++) {
+            Request request = channelRequesters.get(i);
+            refresh(request, gameTime);
+            unbounded |= request.unbounded;
+        }
+        return unbounded || !wanted.get(channel).isEmpty();
+    }
+
+    /**
+     * Whether the target wants anything this run; plain import targets always do.
+     */
+    boolean isWanting(TransferEngine.ImportTarget target, long gameTime) {
+        Request request = requests.get(target);
+        if (request == null)
+            return true;
+        refresh(request, gameTime);
+        return request.unbounded || !request.missing.isEmpty();
+    }
+
+    /**
+     * Whether the target is short of {@code item}; plain import targets always are.
+     */
+    boolean wants(TransferEngine.ImportTarget target, Item item, long gameTime) {
+        Request request = requests.get(target);
+        if (request == null)
+            return true;
+        refresh(request, gameTime);
+        return request.unbounded || request.missing.contains(item);
+    }
+
+    /**
+     * How many of {@code item} the target still wants, read from its live count
+     * table so moves made this run count; unlimited for plain import targets.
+     */
+    int shortfall(TransferEngine.ImportTarget target, Item item, long gameTime) {
+        Request request = requests.get(target);
+        if (request == null)
+            return Integer.MAX_VALUE;
+        refresh(request, gameTime);
+        if (request.unbounded)
+            return Integer.MAX_VALUE;
+        if (!request.missing.contains(item) || request.counts == null)
+            return 0;
+        // Rescans only if something invalidated the table since it was read
+        request.counts.refresh(request.handler, gameTime);
+        return Math.max(0, keepFor(request, item) - request.counts.getCount(item));
+    }
+
+    private void refresh(Request request, long gameTime) {
+        LogisticsNodeEntity node = request.target.node();
+        if (request.checkedTick >= 0 && node.getContentChangeTick() < request.checkedTick
+                && gameTime - request.checkedTick < RECHECK_TICKS)
+            return;
+
+        Reference2ObjectOpenHashMap<Item, List<TransferEngine.ImportTarget>> byItem =
+                wanted.get(request.target.channelIndex());
+        for (Item item : request.missing) {
+            List<TransferEngine.ImportTarget> targets = byItem.get(item);
+            if (targets != null && targets.remove(request.target) && targets.isEmpty()) {
+                byItem.remove(item);
+            }
+        }
+        request.missing.clear();
+        request.unbounded = false;
+        request.counts = null;
+        request.handler = null;
+        request.checkedTick = gameTime;
+        evaluate(request, gameTime);
+        for (Item item : request.missing) {
+            byItem.computeIfAbsent(item, key -> new ArrayList<>(2)).add(request.target);
+        }
+    }
+
+    private static void evaluate(Request request, long gameTime) {
+        LogisticsNodeEntity node = request.target.node();
+        if (!node.isValidNode() || !((ServerLevel) node.level()).isLoaded(node.getAttachedPos()))
+            return;
+
+        ChannelData channel = request.target.channel();
+        Set<Item> wants = channel.getFilterProgram().getRoutedItems();
+        if (wants == null) {
+            request.unbounded = true;
+            return;
+        }
+
+        Direction side = channel.getIoDirection();
+        IItemHandler handler = node.getCapabilityCache().getCapability(Capabilities.ItemHandler.BLOCK, side);
+        if (handler == null)
+            return;
+
+        request.keep = requestAmount(channel.getFilterItems());
+        request.handler = handler;
+        request.counts = node.getItemCountTable(side);
+        request.counts.refresh(handler, gameTime);
+        for (Item item : wants) {
+            if (request.counts.getCount(item) < keepFor(request, item)) {
+                request.missing.add(item);
+            }
+        }
+    }
+
+    private static int keepFor(Request request, Item item) {
+        return request.keep > 0 ? request.keep : item.getDefaultMaxStackSize();
+    }
+
+    // Same rule as the import threshold in TransferEngine#collectAmountConstraints
+    private static int requestAmount(ItemStack[] filters) {
+        int amount = 0;
+        if (filters == null)
+            return amount;
+        for (ItemStack filter : filters) {
+            if (AmountFilterData.isAmountFilterItem(filter)) {
+                int value = AmountFilterData.getAmount(filter);
+                amount = amount == 0 ? value : Math.min(amount, value);
+            }
+        }
+        return amount;
+    }
+}
@@ -0,0 +1,224 @@
+package me.almana.logisticsnetworks.logic;
+
+import it.unimi.dsi.fastutil.objects.Reference2IntMap;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+import me.almana.logisticsnetworks.data.ChannelData;
+import me.almana.logisticsnetworks.data.DistributionMode;
+import me.almana.logisticsnetworks.entity.LogisticsNodeEntity;
+import net.minecraft.server.level.ServerLevel;
+import net.neoforged.neoforge.capabilities.Capabilities;
+import net.neoforged.neoforge.energy.IEnergyStorage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Network-wide energy distribution for one run, in three phases. Gather reads
+ * each queued exporter's extractable energy and each reachable importer's free
+ * capacity once. Solve assigns flow against the shared remaining capacity, in
+ * each exporter's target order or, for WEIGHTED channels, split by import
+ * weight. Commit makes one extract per exporter and one receive per importer.
+ */
+final class EnergyBalancer {
+
+    static final class Exporter {
+        int nodeIndex;
+        int channelIndex;
+        ChannelData channel;
+        IEnergyStorage handler;
+        int limit;
+        final List<TransferEngine.ImportTarget> targets = new ArrayList<>();
+        // Targets that passed the reach checks, filled during gather
+        final List<TransferEngine.ImportTarget> reachable = new ArrayList<>();
+        int offer;
+        int moved;
+        boolean anyReachable;
+    }
+
+    private final List<Exporter> exporters = new ArrayList<>();
+    private int exporterCount;
+    // -1 until the target is first resolved this run
+    private final Reference2IntOpenHashMap<TransferEngine.ImportTarget> capacity = new Reference2IntOpenHashMap<>();
+    private final Reference2IntOpenHashMap<TransferEngine.ImportTarget> assigned = new Reference2IntOpenHashMap<>();
+    private final Reference2ObjectOpenHashMap<TransferEngine.ImportTarget, IEnergyStorage> receivers =
+            new Reference2ObjectOpenHashMap<>();
+    private int totalOffer;
+
+    EnergyBalancer() {
+        capacity.defaultReturnValue(-1);
+    }
+
+    void clear() {
+        exporterCount = 0;
+    }
+
+    /**
+     * Queues an exporter. {@code targets} may be a scratch list; it is copied.
+     */
+    void add(int nodeIndex, int channelIndex, ChannelData channel, IEnergyStorage handler, int limit,
+            List<TransferEngine.ImportTarget> targets) {
+        if (exporterCount == exporters.size()) {
+            exporters.add(new Exporter());
+        }
+        Exporter exporter = exporters.get(exporterCount++);
+        exporter.nodeIndex = nodeIndex;
+        exporter.channelIndex = channelIndex;
+        exporter.channel = channel;
+        exporter.handler = handler;
+        exporter.limit = limit;
+        exporter.targets.clear();
+        for (int i = 0; i < targets.size(); i++) {
+            exporter.targets.add(targets.get(i));
+        }
+        exporter.reachable.clear();
+        exporter.moved = 0;
+        exporter.anyReachable = false;
+    }
+
+    int size() {
+        return exporterCount;
+    }
+
+    Exporter get(int index) {
+        return exporters.get(index);
+    }
+
+    void solve(NetworkExecutionContext context) {
+        if (exporterCount == 0)
+            return;
+
+        capacity.clear();
+        assigned.clear();
+        receivers.clear();
+        gather(context);
+        for (int k = 0; k < exporterCount; k++) {
+            Exporter exporter = exporters.get(k);
+            if (exporter.channel.getDistributionMode() == DistributionMode.WEIGHTED) {
+                assignWeighted(exporter);
+            } else {
+                assignInOrder(exporter, exporter.offer);
+            }
+        }
+        commit();
+    }
+
+    private void gather(NetworkExecutionContext context) {
+        totalOffer = 0;
+        for (int k = 0; k < exporterCount; k++) {
+            Exporter exporter = exporters.get(k);
+            exporter.offer = Math.max(0, exporter.handler.extractEnergy(exporter.limit, true));
+            totalOffer = (int) Math.min(Integer.MAX_VALUE, (long) totalOffer + exporter.offer);
+        }
+
+        for (int k = 0; k < exporterCount; k++) {
+            Exporter exporter = exporters.get(k);
+            LogisticsNodeEntity sourceNode = context.node(exporter.nodeIndex);
+            boolean sourceDimensional = context.isDimensional(sourceNode);
+            for (TransferEngine.ImportTarget target : exporter.targets) {
+                if (target.node().getUUID().equals(sourceNode.getUUID()) || !target.node().isValidNode())
+                    continue;
+                if (!TransferEngine.canReach(sourceNode, target.node(), sourceDimensional, context))
+                    continue;
+
+                exporter.anyReachable = true;
+                if (exporter.offer > 0 && resolve(target) > 0) {
+                    exporter.reachable.add(target);
+                }
+            }
+        }
+    }
+
+    private int resolve(TransferEngine.ImportTarget target) {
+        int free = capacity.getInt(target);
+        if (free >= 0)
+            return free;
+
+        free = 0;
+        LogisticsNodeEntity node = target.node();
+        if (((ServerLevel) node.level()).isLoaded(node.getAttachedPos())) {
+            IEnergyStorage handler = node.getCapabilityCache().getCapability(Capabilities.EnergyStorage.BLOCK,
+                    target.channel().getIoDirection());
+            if (handler != null && handler.canReceive()) {
+                receivers.put(target, handler);
+                free = Math.max(0, handler.receiveEnergy(totalOffer, true));
+            }
+        }
+        capacity.put(target, free);
+        return free;
+    }
+
+    private int remainingCapacity(TransferEngine.ImportTarget target) {
+        return capacity.getInt(target) - assigned.getInt(target);
+    }
+
+    private void assignInOrder(Exporter exporter, int amount) {
+        for (int i = 0; i < exporter.reachable.size() && amount > 0; i++) {
+            TransferEngine.ImportTarget target = exporter.reachable.get(i);
+            int share = Math.min(amount, remainingCapacity(target));
+            if (share > 0) {
+                assigned.addTo(target, share);
+                exporter.moved += share;
+                amount -= share;
+            }
+        }
+    }
+
+    private void assignWeighted(Exporter exporter) {
+        long totalWeight = 0;
+        for (TransferEngine.ImportTarget target : exporter.reachable) {
+            if (remainingCapacity(target) > 0) {
+                totalWeight += TransferEngine.getWeight(target);
+            }
+        }
+        if (totalWeight <= 0)
+            return;
+
+        int amount = exporter.offer;
+        for (TransferEngine.ImportTarget target : exporter.reachable) {
+            int free = remainingCapacity(target);
+            if (free <= 0)
+                continue;
+            int share = (int) Math.min(free, (long) exporter.offer * TransferEngine.getWeight(target) / totalWeight);
+            if (share > 0) {
+                assigned.addTo(target, share);
+                exporter.moved += share;
+                amount -= share;
+            }
+        }
+        // Rounding remainder and shares capped by capacity go to whoever still has room
+        assignInOrder(exporter, amount);
+    }
+
+    private void commit() {
+        long pool = 0;
+        for (int k = 0; k < exporterCount; k++) {
+            Exporter exporter = exporters.get(k);
+            if (exporter.moved <= 0)
+                continue;
+            int extracted = Math.max(0, exporter.handler.extractEnergy(exporter.moved, false));
+            exporter.moved = extracted;
+            pool += extracted;
+        }
+        if (pool <= 0)
+            return;
+
+        for (Reference2IntMap.Entry<TransferEngine.ImportTarget> entry : assigned.reference2IntEntrySet()) {
+            int amount = (int) Math.min(pool, entry.getIntValue());
+            if (amount > 0) {
+                pool -= Math.max(0, receivers.get(entry.getKey()).receiveEnergy(amount, false));
+            }
+        }
+
+        // Targets took less than they reported; hand the rest back to the exporters
+        for (int k = exporterCount - 1; k >= 0 && pool > 0; k--) {
+            Exporter exporter = exporters.get(k);
+            int back = (int) Math.min(pool, exporter.moved);
+            if (back > 0) {
+                exporter.handler.receiveEnergy(back, false);
+                exporter.moved -= back;
+                pool -= back;
+            }
+        }
+    }
+}
@@ -0,0 +1,577 @@
+package me.almana.logisticsnetworks.logic;
+
+import me.almana.logisticsnetworks.data.FilterMode;
+import it.unimi.dsi.fastutil.objects.Object2ByteLinkedOpenCustomHashMap;
+import it.unimi.dsi.fastutil.objects.ReferenceOpenHashSet;
+import me.almana.logisticsnetworks.filter.*;
+import net.minecraft.core.Holder;
+import net.minecraft.core.HolderLookup;
+import net.minecraft.core.Registry;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.core.registries.Registries;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.tags.TagKey;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.item.ItemStackLinkedSet;
+import net.minecraft.world.level.material.Fluid;
+import net.neoforged.neoforge.fluids.FluidStack;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BiPredicate;
+import java.util.function.Predicate;
+
+/**
+ * Pre-classified form of a channel's filter slots. Built once per filter edit
+ * by {@link me.almana.logisticsnetworks.data.ChannelData} and evaluated with
+ * the same blacklist/whitelist rules as {@link FilterLogic}. The compiled
+ * clauses never change; the match cache, recipe plan, slot mask and routed
+ * item set are filled lazily per program, and together with the static tag
+ * epoch are only touched from the server thread.
+ */
+public final class FilterProgram {
+
+    private static final int MATCH_CACHE_SIZE = 256;
+    private static final byte UNCACHED = 0;
+    private static final byte CACHED_MATCH = 1;
+    private static final byte CACHED_NO_MATCH = 2;
+
+    // Bumped on tag reload so cached results that depended on tags are dropped
+    private static int tagEpoch = 0;
+
+    public static final FilterProgram EMPTY = new FilterProgram(new ItemStack[0], false, false, false,
+            null, null, null, null,
+            new Clauses<>(List.of(), List.of(), List.of()),
+            new Clauses<>(List.of(), List.of(), List.of()),
+            new Clauses<>(List.of(), List.of(), List.of()));
+
+    @FunctionalInterface
+    private interface ItemTest {
+        boolean test(ItemStack candidate, HolderLookup.Provider provider, @Nullable CompoundTag components);
+    }
+
+    // required: must all pass, blacklist: none may match, whitelist: combined by filter mode
+    private record Clauses<T>(List<T> required, List<T> blacklist, List<T> whitelist) {
+        boolean isEmpty() {
+            return required.isEmpty() && blacklist.isEmpty() && whitelist.isEmpty();
+        }
+    }
+
+    /**
+     * One step of a RECIPE_ROBIN plan: an exact item or an item tag, and how many
+     * to send before moving on.
+     */
+    public record RecipeEntry(ItemStack item, @Nullable TagKey<Item> tag, int amount) {
+        public boolean matches(ItemStack candidate) {
+            if (tag != null) {
+                return candidate.is(tag);
+            }
+            return !item.isEmpty() && ItemStack.isSameItem(item, candidate);
+        }
+    }
+
+    private final ItemStack[] filters;
+    @Nullable
+    private List<RecipeEntry> recipePlan;
+
+    // Slot filter rules; whitelist null means every slot not blacklisted
+    @Nullable
+    private final BitSet slotWhitelist;
+    @Nullable
+    private final BitSet slotBlacklist;
+    private int slotMaskSize = -1;
+    @Nullable
+    private BitSet slotMask;
+
+    // Plain items and item tags the item whitelist reduces to; null when a clause needs the whole stack
+    @Nullable
+    private final Set<Item> routeItems;
+    @Nullable
+    private final List<TagKey<Item>> routeTags;
+    @Nullable
+    private Set<Item> routedItems;
+    private int routedEpoch = -1;
+
+    private final boolean matchAll;
+    private final boolean needsItemComponents;
+    private final boolean cacheable;
+    // Looked up by the candidate stack itself; keys are single-item copies made on a miss
+    private final Object2ByteLinkedOpenCustomHashMap<ItemStack> itemMatchCache =
+            new Object2ByteLinkedOpenCustomHashMap<>(16, ItemStackLinkedSet.TYPE_AND_TAG);
+    private int cacheEpoch = tagEpoch;
+    private final Clauses<ItemTest> itemClauses;
+    private final Clauses<BiPredicate<FluidStack, HolderLookup.Provider>> fluidClauses;
+    private final Clauses<Predicate<String>> chemicalClauses;
+
+    private FilterProgram(ItemStack[] filters, boolean matchAll, boolean needsItemComponents, boolean cacheable,
+            @Nullable BitSet slotWhitelist, @Nullable BitSet slotBlacklist,
+            @Nullable Set<Item> routeItems, @Nullable List<TagKey<Item>> routeTags,
+            Clauses<ItemTest> itemClauses,
+            Clauses<BiPredicate<FluidStack, HolderLookup.Provider>> fluidClauses,
+            Clauses<Predicate<String>> chemicalClauses) {
+        this.filters = filters;
+        this.matchAll = matchAll;
+        this.needsItemComponents = needsItemComponents;
+        this.cacheable = cacheable;
+        this.slotWhitelist = slotWhitelist;
+        this.slotBlacklist = slotBlacklist;
+        this.routeItems = routeItems;
+        this.routeTags = routeTags;
+        this.itemClauses = itemClauses;
+        this.fluidClauses = fluidClauses;
+        this.chemicalClauses = chemicalClauses;
+    }
+
+    public static FilterProgram compile(ItemStack[] filters, FilterMode filterMode) {
+        if (filters == null || filters.length == 0)
+            return EMPTY;
+
+        List<ItemTest> itemRequired = new ArrayList<>();
+        List<ItemTest> itemBlacklist = new ArrayList<>();
+        List<ItemTest> itemWhitelist = new ArrayList<>();
+        List<BiPredicate<FluidStack, HolderLookup.Provider>> fluidBlacklist = new ArrayList<>();
+        List<BiPredicate<FluidStack, HolderLookup.Provider>> fluidWhitelist = new ArrayList<>();
+        List<Predicate<String>> chemicalBlacklist = new ArrayList<>();
+        List<Predicate<String>> chemicalWhitelist = new ArrayList<>();
+        boolean cacheable = true;
+        BitSet slotWhitelist = null;
+        BitSet slotBlacklist = null;
+        boolean routable = true;
+        Set<Item> routeItems = new ReferenceOpenHashSet<>();
+        List<TagKey<Item>> routeTags = new ArrayList<>();
+        List<ItemStack> copies = new ArrayList<>(filters.length);
+
+        for (ItemStack stack : filters) {
+            if (stack.isEmpty())
+                continue;
+            ItemStack filter = stack.copy();
+            copies.add(filter);
+
+            // Tooltip text is not a pure function of item and components
+            if (NameFilterData.isNameFilter(filter) && NameFilterData.getMatchScope(filter) != NameMatchScope.NAME) {
+                cacheable = false;
+            }
+
+            if (SlotFilterData.isSlotFilterItem(filter) && SlotFilterData.hasAnySlots(filter)) {
+                BitSet bits = new BitSet();
+                for (int slot : SlotFilterData.getSlots(filter)) {
+                    bits.set(slot);
+                }
+                if (SlotFilterData.isBlacklist(filter)) {
+                    slotBlacklist = slotBlacklist == null ? bits : or(slotBlacklist, bits);
+                } else {
+                    slotWhitelist = slotWhitelist == null ? bits : or(slotWhitelist, bits);
+                }
+            }
+
+            routable &= compileItemClause(filter, itemRequired, itemBlacklist, itemWhitelist, routeItems,
+                    routeTags);
+            compileFluidClause(filter, fluidBlacklist, fluidWhitelist);
+            compileChemicalClause(filter, chemicalBlacklist, chemicalWhitelist);
+        }
+
+        Clauses<ItemTest> items = new Clauses<>(List.copyOf(itemRequired), List.copyOf(itemBlacklist),
+                List.copyOf(itemWhitelist));
+        Clauses<BiPredicate<FluidStack, HolderLookup.Provider>> fluids = new Clauses<>(List.of(),
+                List.copyOf(fluidBlacklist), List.copyOf(fluidWhitelist));
+        Clauses<Predicate<String>> chemicals = new Clauses<>(List.of(), List.copyOf(chemicalBlacklist),
+                List.copyOf(chemicalWhitelist));
+        if (items.isEmpty() && fluids.isEmpty() && chemicals.isEmpty() && slotWhitelist == null
+                && slotBlacklist == null)
+            return EMPTY;
+
+        boolean matchAll = filterMode == FilterMode.MATCH_ALL;
+        if (items.whitelist().isEmpty() || (matchAll && items.whitelist().size() > 1)) {
+            routable = false;
+        }
+
+        return new FilterProgram(copies.toArray(new ItemStack[0]), matchAll,
+                FilterLogic.hasConfiguredItemNbtFilter(filters), cacheable, slotWhitelist, slotBlacklist,
+                routable ? routeItems : null, routable ? List.copyOf(routeTags) : null,
+                items, fluids, chemicals);
+    }
+
+    private static BitSet or(BitSet a, BitSet b) {
+        a.or(b);
+        return a;
+    }
+
+    /**
+     * Returns whether the clause, if any, reduces to plain items and tags, which
+     * are then added to the route sets.
+     */
+    private static boolean compileItemClause(ItemStack filter, List<ItemTest> required, List<ItemTest> blacklist,
+            List<ItemTest> whitelist, Set<Item> routeItems, List<TagKey<Item>> routeTags) {
+        ItemTest test = null;
+        boolean isBlacklist = false;
+        boolean plain = false;
+
+        if (FilterItemData.isFilterItem(filter) && FilterItemData.hasAnyItemMatchEntries(filter, null)) {
+            FilterItemData.CompiledItemEntries entries = FilterItemData.compileItemEntries(filter);
+            test = entries::matches;
+            isBlacklist = FilterItemData.isBlacklist(filter);
+            if (!isBlacklist && entries.isPlain()) {
+                entries.collectPlain(routeItems, routeTags);
+                plain = true;
+            }
+        } else if (TagFilterData.isTagFilterItem(filter) && TagFilterData.hasAnyTags(filter)
+                && TagFilterData.getTargetType(filter) == FilterTargetType.ITEMS) {
+            List<TagKey<Item>> tags = resolveTags(TagFilterData.getTagFilters(filter), Registries.ITEM);
+            test = (candidate, provider, components) -> {
+                for (TagKey<Item> tag : tags) {
+                    if (candidate.is(tag))
+                        return true;
+                }
+                return false;
+            };
+            isBlacklist = TagFilterData.isBlacklist(filter);
+            if (!isBlacklist) {
+                routeTags.addAll(tags);
+                plain = true;
+            }
+        } else if (ModFilterData.isModFilter(filter) && ModFilterData.hasAnyMods(filter)
+                && ModFilterData.getTargetType(filter) == FilterTargetType.ITEMS) {
+            Set<String> namespaces = internNamespaces(ModFilterData.getModFilters(filter));
+            test = (candidate, provider, components) -> namespaces
+                    .contains(BuiltInRegistries.ITEM.getKey(candidate.getItem()).getNamespace());
+            isBlacklist = ModFilterData.isBlacklist(filter);
+        } else if (NbtFilterData.isNbtFilter(filter)
+                && NbtFilterData.getTargetType(filter) == FilterTargetType.ITEMS) {
+            String path = NbtFilterData.getSelectedPath(filter);
+            if (path != null && !NbtFilterData.isFluidPath(path)) {
+                test = (candidate, provider, components) -> NbtFilterData.matchesSelection(filter, path,
+                        components);
+                isBlacklist = NbtFilterData.isBlacklist(filter);
+            }
+        } else if (NameFilterData.isNameFilter(filter) && NameFilterData.hasNameFilter(filter)
+                && NameFilterData.getTargetType(filter) == FilterTargetType.ITEMS) {
+            test = (candidate, provider, components) -> NameFilterData.containsName(filter, candidate);
+            isBlacklist = NameFilterData.isBlacklist(filter);
+        } else if (DurabilityFilterData.isDurabilityFilterItem(filter)) {
+            int threshold = DurabilityFilterData.getValue(filter);
+            DurabilityFilterData.Operator operator = DurabilityFilterData.getOperator(filter);
+            required.add((candidate, provider, components) -> {
+                if (!candidate.isDamageableItem())
+                    return false;
+                int remaining = candidate.getMaxDamage() - candidate.getDamageValue();
+                return switch (operator) {
+                    case LESS_OR_EQUAL -> remaining <= threshold;
+                    case EQUAL -> remaining == threshold;
+                    case GREATER_OR_EQUAL -> remaining >= threshold;
+                };
+            });
+            return false;
+        }
+
+        if (test != null) {
+            (isBlacklist ? blacklist : whitelist).add(test);
+            return plain;
+        }
+        return true;
+    }
+
+    private static void compileFluidClause(ItemStack filter,
+            List<BiPredicate<FluidStack, HolderLookup.Provider>> blacklist,
+            List<BiPredicate<FluidStack, HolderLookup.Provider>> whitelist) {
+        BiPredicate<FluidStack, HolderLookup.Provider> test = null;
+        boolean isBlacklist = false;
+
+        if (FilterItemData.isFilterItem(filter)
+                && (FilterItemData.hasAnyFluidEntries(filter) || FilterItemData.hasAnyTagEntries(filter))) {
+            test = (candidate, provider) -> FilterItemData.containsFluidFull(filter, candidate, provider);
+            isBlacklist = FilterItemData.isBlacklist(filter);
+        } else if (TagFilterData.isTagFilterItem(filter) && TagFilterData.hasAnyTags(filter)
+                && TagFilterData.getTargetType(filter) == FilterTargetType.FLUIDS) {
+            List<TagKey<Fluid>> tags = resolveTags(TagFilterData.getTagFilters(filter), Registries.FLUID);
+            test = (candidate, provider) -> {
+                for (TagKey<Fluid> tag : tags) {
+                    if (candidate.is(tag))
+                        return true;
+                }
+                return false;
+            };
+            isBlacklist = TagFilterData.isBlacklist(filter);
+        } else if (ModFilterData.isModFilter(filter) && ModFilterData.hasAnyMods(filter)
+                && ModFilterData.getTargetType(filter) == FilterTargetType.FLUIDS) {
+            Set<String> namespaces = internNamespaces(ModFilterData.getModFilters(filter));
+            test = (candidate, provider) -> namespaces
+                    .contains(BuiltInRegistries.FLUID.getKey(candidate.getFluid()).getNamespace());
+            isBlacklist = ModFilterData.isBlacklist(filter);
+        } else if (NbtFilterData.isNbtFilter(filter)
+                && NbtFilterData.getTargetType(filter) == FilterTargetType.FLUIDS) {
+            String path = NbtFilterData.getSelectedPath(filter);
+            if (path != null && NbtFilterData.isFluidPath(path)) {
+                test = (candidate, provider) -> NbtFilterData.matchesSelection(filter, candidate, provider);
+                isBlacklist = NbtFilterData.isBlacklist(filter);
+            }
+        } else if (NameFilterData.isNameFilter(filter) && NameFilterData.hasNameFilter(filter)
+                && NameFilterData.getTargetType(filter) == FilterTargetType.FLUIDS) {
+            test = (candidate, provider) -> NameFilterData.containsName(filter, candidate);
+            isBlacklist = NameFilterData.isBlacklist(filter);
+        }
+
+        if (test != null) {
+            (isBlacklist ? blacklist : whitelist).add(test);
+        }
+    }
+
+    private static void compileChemicalClause(ItemStack filter, List<Predicate<String>> blacklist,
+            List<Predicate<String>> whitelist) {
+        Predicate<String> test = null;
+        boolean isBlacklist = false;
+
+        if (FilterItemData.isFilterItem(filter)
+                && (FilterItemData.hasAnyChemicalEntries(filter) || FilterItemData.hasAnyTagEntries(filter))) {
+            test = chemicalId -> FilterItemData.containsChemicalFull(filter, chemicalId);
+            isBlacklist = FilterItemData.isBlacklist(filter);
+        } else if (TagFilterData.isTagFilterItem(filter) && TagFilterData.hasAnyTags(filter)
+                && TagFilterData.getTargetType(filter) == FilterTargetType.CHEMICALS) {
+            test = chemicalId -> TagFilterData.containsTag(filter, chemicalId);
+            isBlacklist = TagFilterData.isBlacklist(filter);
+        } else if (ModFilterData.isModFilter(filter) && ModFilterData.hasAnyMods(filter)
+                && ModFilterData.getTargetType(filter) == FilterTargetType.CHEMICALS) {
+            Set<String> namespaces = internNamespaces(ModFilterData.getModFilters(filter));
+            test = chemicalId -> {
+                ResourceLocation id = ResourceLocation.tryParse(chemicalId);
+                return id != null && namespaces.contains(id.getNamespace());
+            };
+            isBlacklist = ModFilterData.isBlacklist(filter);
+        } else if (NameFilterData.isNameFilter(filter) && NameFilterData.hasNameFilter(filter)
+                && NameFilterData.getTargetType(filter) == FilterTargetType.CHEMICALS) {
+            test = chemicalId -> NameFilterData.containsName(filter, chemicalId);
+            isBlacklist = NameFilterData.isBlacklist(filter);
+        }
+
+        if (test != null) {
+            (isBlacklist ? blacklist : whitelist).add(test);
+        }
+    }
+
+    private static <T> List<TagKey<T>> resolveTags(List<String> tagIds, ResourceKey<? extends Registry<T>> registry) {
+        List<TagKey<T>> tags = new ArrayList<>(tagIds.size());
+        for (String tagId : tagIds) {
+            ResourceLocation id = ResourceLocation.tryParse(tagId);
+            if (id != null) {
+                tags.add(TagKey.create(registry, id));
+            }
+        }
+        return List.copyOf(tags);
+    }
+
+    private static Set<String> internNamespaces(List<String> mods) {
+        Set<String> namespaces = new HashSet<>(mods.size());
+        for (String mod : mods) {
+            namespaces.add(mod.intern());
+        }
+        return Set.copyOf(namespaces);
+    }
+
+    /**
+     * Amount-bearing item entries of the filters in slot order, parsed on first
+     * use and kept for the life of this program.
+     */
+    public List<RecipeEntry> getRecipePlan(HolderLookup.Provider provider) {
+        if (recipePlan == null) {
+            recipePlan = buildRecipePlan(provider);
+        }
+        return recipePlan;
+    }
+
+    private List<RecipeEntry> buildRecipePlan(HolderLookup.Provider provider) {
+        List<RecipeEntry> recipe = new ArrayList<>();
+        for (ItemStack filter : filters) {
+            if (!FilterItemData.isFilterItem(filter))
+                continue;
+            int cap = FilterItemData.getCapacity(filter);
+            for (int slot = 0; slot < cap; slot++) {
+                int amount = FilterItemData.getEntryAmount(filter, slot);
+                if (amount <= 0)
+                    continue;
+
+                String tag = FilterItemData.getEntryTag(filter, slot);
+                if (tag != null) {
+                    TagKey<Item> tagKey = FilterTagUtil.itemTagKey(tag);
+                    if (tagKey != null) {
+                        recipe.add(new RecipeEntry(ItemStack.EMPTY, tagKey, amount));
+                    }
+                    continue;
+                }
+
+                ItemStack entry = FilterItemData.getEntry(filter, slot, provider);
+                if (!entry.isEmpty()) {
+                    recipe.add(new RecipeEntry(entry, null, amount));
+                }
+            }
+        }
+        return List.copyOf(recipe);
+    }
+
+    /**
+     * Slots of a handler with {@code slotCount} slots that the slot filters allow,
+     * or null when no slot filter is configured. The mask for the last slot count
+     * is kept; callers must not modify it.
+     */
+    @Nullable
+    public BitSet getSlotMask(int slotCount) {
+        if (slotWhitelist == null && slotBlacklist == null)
+            return null;
+        if (slotCount != slotMaskSize) {
+            BitSet mask = new BitSet(slotCount);
+            if (slotWhitelist != null) {
+                mask.or(slotWhitelist);
+                if (mask.length() > slotCount) {
+                    mask.clear(slotCount, mask.length());
+                }
+            } else {
+                mask.set(0, slotCount);
+            }
+            if (slotBlacklist != null) {
+                mask.andNot(slotBlacklist);
+            }
+            slotMask = mask;
+            slotMaskSize = slotCount;
+        }
+        return slotMask;
+    }
+
+    /**
+     * Every item this program accepts when its item side is a whitelist of plain
+     * items and tags, or null when matching needs the whole stack. Tags are
+     * expanded against the current tag state.
+     */
+    @Nullable
+    public Set<Item> getRoutedItems() {
+        if (routeItems == null)
+            return null;
+        if (routedItems == null || routedEpoch != tagEpoch) {
+            Set<Item> expanded = new ReferenceOpenHashSet<>(routeItems);
+            for (TagKey<Item> tag : routeTags) {
+                for (Holder<Item> holder : BuiltInRegistries.ITEM.getTagOrEmpty(tag)) {
+                    expanded.add(holder.value());
+                }
+            }
+            routedItems = expanded;
+            routedEpoch = tagEpoch;
+        }
+        return routedItems;
+    }
+
+    static int getTagEpoch() {
+        return tagEpoch;
+    }
+
+    public static void onTagsUpdated() {
+        tagEpoch++;
+    }
+
+    public boolean isEmpty() {
+        return this == EMPTY;
+    }
+
+    public boolean needsItemComponents() {
+        return needsItemComponents;
+    }
+
+    /**
+     * Components are resolved on demand when null; results for the same item and
+     * component patch are remembered until the filter or tags change.
+     */
+    public boolean matchesItem(ItemStack candidate, HolderLookup.Provider provider,
+            @Nullable CompoundTag candidateComponents) {
+        if (candidate.isEmpty())
+            return false;
+        if (itemClauses.isEmpty())
+            return true;
+        if (!cacheable)
+            return evaluateItem(candidate, provider, candidateComponents);
+
+        if (cacheEpoch != tagEpoch) {
+            itemMatchCache.clear();
+            cacheEpoch = tagEpoch;
+        }
+        byte cached = itemMatchCache.getAndMoveToLast(candidate);
+        if (cached != UNCACHED)
+            return cached == CACHED_MATCH;
+
+        boolean matched = evaluateItem(candidate, provider, candidateComponents);
+        if (itemMatchCache.size() >= MATCH_CACHE_SIZE) {
+            itemMatchCache.removeFirstByte();
+        }
+        itemMatchCache.put(candidate.copyWithCount(1), matched ? CACHED_MATCH : CACHED_NO_MATCH);
+        return matched;
+    }
+
+    private boolean evaluateItem(ItemStack candidate, HolderLookup.Provider provider,
+            @Nullable CompoundTag candidateComponents) {
+        if (needsItemComponents && candidateComponents == null && provider != null) {
+            candidateComponents = NbtFilterData.getSerializedComponents(candidate, provider);
+        }
+
+        for (ItemTest test : itemClauses.required()) {
+            if (!test.test(candidate, provider, candidateComponents))
+                return false;
+        }
+        for (ItemTest test : itemClauses.blacklist()) {
+            if (test.test(candidate, provider, candidateComponents))
+                return false;
+        }
+        List<ItemTest> whitelist = itemClauses.whitelist();
+        if (whitelist.isEmpty())
+            return true;
+        for (ItemTest test : whitelist) {
+            boolean matched = test.test(candidate, provider, candidateComponents);
+            if (matchAll != matched)
+                return matched;
+        }
+        return matchAll;
+    }
+
+    public boolean matchesFluid(FluidStack candidate, HolderLookup.Provider provider) {
+        if (candidate.isEmpty())
+            return false;
+        if (fluidClauses.isEmpty())
+            return true;
+
+        for (BiPredicate<FluidStack, HolderLookup.Provider> test : fluidClauses.blacklist()) {
+            if (test.test(candidate, provider))
+                return false;
+        }
+        List<BiPredicate<FluidStack, HolderLookup.Provider>> whitelist = fluidClauses.whitelist();
+        if (whitelist.isEmpty())
+            return true;
+        for (BiPredicate<FluidStack, HolderLookup.Provider> test : whitelist) {
+            boolean matched = test.test(candidate, provider);
+            if (matchAll != matched)
+                return matched;
+        }
+        return matchAll;
+    }
+
+    public boolean matchesChemical(String chemicalId) {
+        if (chemicalId == null || chemicalId.isEmpty())
+            return false;
+        if (chemicalClauses.isEmpty())
+            return true;
+
+        for (Predicate<String> test : chemicalClauses.blacklist()) {
+            if (test.test(chemicalId))
+                return false;
+        }
+        List<Predicate<String>> whitelist = chemicalClauses.whitelist();
+        if (whitelist.isEmpty())
+            return true;
+        for (Predicate<String> test : whitelist) {
+            boolean matched = test.test(chemicalId);
+            if (matchAll != matched)
+                return matched;
+        }
+        return matchAll;
+    }
+}
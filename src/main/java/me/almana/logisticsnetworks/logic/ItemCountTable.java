@@ -0,0 +1,55 @@
+package me.almana.logisticsnetworks.logic;
+
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.item.ItemStack;
+import net.neoforged.neoforge.items.IItemHandler;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Per-tick shared cache of the per-item totals of one node-side inventory.
+ * Every exporter touching the inventory in the same tick shares one scan, and
+ * the engine applies its own moves to it as deltas. Nothing survives into a
+ * later tick: hoppers and machines edit inventories without any event, so the
+ * table is rescanned on its first use each tick, after {@link #invalidate()},
+ * or when the handler changes.
+ */
+public final class ItemCountTable {
+
+    private final Reference2IntOpenHashMap<Item> counts = new Reference2IntOpenHashMap<>();
+    @Nullable
+    private IItemHandler handler;
+    private long builtTick;
+    private boolean valid;
+
+    public void refresh(IItemHandler handler, long gameTime) {
+        if (valid && handler == this.handler && gameTime == builtTick)
+            return;
+
+        counts.clear();
+        for (int slot = 0; slot < handler.getSlots(); slot++) {
+            ItemStack stack = handler.getStackInSlot(slot);
+            if (!stack.isEmpty()) {
+                counts.addTo(stack.getItem(), stack.getCount());
+            }
+        }
+        this.handler = handler;
+        this.builtTick = gameTime;
+        this.valid = true;
+    }
+
+    public int getCount(Item item) {
+        return counts.getInt(item);
+    }
+
+    public void add(Item item, int delta) {
+        if (valid) {
+            counts.addTo(item, delta);
+        }
+    }
+
+    public void invalidate() {
+        valid = false;
+        handler = null;
+    }
+}
@@ -0,0 +1,253 @@
+package me.almana.logisticsnetworks.logic;
+
+import com.mojang.logging.LogUtils;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import me.almana.logisticsnetworks.Config;
+import me.almana.logisticsnetworks.data.ChannelData;
+import me.almana.logisticsnetworks.data.ChannelMode;
+import me.almana.logisticsnetworks.data.ChannelType;
+import me.almana.logisticsnetworks.data.DistributionMode;
+import me.almana.logisticsnetworks.data.LogisticsNetwork;
+import me.almana.logisticsnetworks.data.NodeIndex;
+import me.almana.logisticsnetworks.data.NodeRef;
+import me.almana.logisticsnetworks.data.RedstoneMode;
+import me.almana.logisticsnetworks.entity.LogisticsNodeEntity;
+import me.almana.logisticsnetworks.upgrade.NodeUpgradeData;
+import net.minecraft.server.level.ServerLevel;
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Reusable per-network state for {@link TransferEngine#processNetwork}. Node
+ * order and resolved import targets are rebuilt only when the network topology
+ * changes or a cached node leaves the world; steady-state runs just refresh
+ * the per-node primitive arrays in place.
+ */
+public final class NetworkExecutionContext {
+
+    private static final Logger LOGGER = LogUtils.getLogger();
+    private static final int CHANNELS = 9;
+    private static final Comparator<UUID> NODE_ORDER = Comparator.comparingLong(UUID::getMostSignificantBits)
+            .thenComparingLong(UUID::getLeastSignificantBits);
+
+    private int builtVersion = -1;
+    private LogisticsNodeEntity[] nodes = new LogisticsNodeEntity[0];
+    private int[] tiers = new int[0];
+    private boolean[] dimensional = new boolean[0];
+    private int[] signals = new int[0];
+    private final Object2IntOpenHashMap<UUID> nodeSlots = new Object2IntOpenHashMap<>();
+    private final List<TransferEngine.ImportTarget>[][] imports = newImportTable();
+    private final ArrayList<TransferEngine.ImportTarget> orderBuffer = new ArrayList<>();
+    // Sorted target lists per (export node, channel), dropped on rebuild
+    private List<TransferEngine.ImportTarget>[] orderedTargets = newOrderTable(0);
+    private DistributionMode[] orderedModes = new DistributionMode[0];
+    private final EnergyBalancer energyBalancer = new EnergyBalancer();
+    private final RoutingIndex[] itemRoutes = new RoutingIndex[CHANNELS];
+    private final DemandIndex demand = new DemandIndex();
+    private final TransferEngine.ItemBuffers itemBuffers = new TransferEngine.ItemBuffers();
+
+    public NetworkExecutionContext() {
+        nodeSlots.defaultReturnValue(-1);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<TransferEngine.ImportTarget>[][] newImportTable() {
+        List<TransferEngine.ImportTarget>[][] table = new List[ChannelType.values().length][CHANNELS];
+        for (List<TransferEngine.ImportTarget>[] byChannel : table) {
+            for (int i = 0; i < CHANNELS; i++) {
+                byChannel[i] = new ArrayList<>();
+            }
+        }
+        return table;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<TransferEngine.ImportTarget>[] newOrderTable(int nodeCount) {
+        return new List[nodeCount * LogisticsNodeEntity.CHANNEL_COUNT];
+    }
+
+    /**
+     * Brings the context up to date for this run. Returns false when the
+     * network has no loaded exporter and there is nothing to do.
+     */
+    boolean prepare(LogisticsNetwork network, NodeIndex nodeIndex) {
+        if (isStale(network)) {
+            rebuild(network, nodeIndex);
+        }
+
+        boolean hasAnyExporter = false;
+        for (int n = 0; n < nodes.length; n++) {
+            LogisticsNodeEntity node = nodes[n];
+            if (!node.isValidNode())
+                continue;
+            tiers[n] = NodeUpgradeData.getUpgradeTier(node);
+            dimensional[n] = NodeUpgradeData.hasDimensionalUpgrade(node);
+
+            boolean needsSignal = false;
+            for (int i = 0; i < LogisticsNodeEntity.CHANNEL_COUNT; i++) {
+                ChannelData ch = node.getChannel(i);
+                if (ch != null && ch.isEnabled()) {
+                    if (ch.getRedstoneMode() != RedstoneMode.ALWAYS_ON) {
+                        needsSignal = true;
+                    }
+                    if (ch.getMode() == ChannelMode.EXPORT) {
+                        hasAnyExporter = true;
+                    }
+                }
+            }
+            signals[n] = needsSignal && node.level() instanceof ServerLevel level
+                    ? level.getBestNeighborSignal(node.getAttachedPos())
+                    : 0;
+        }
+        return hasAnyExporter;
+    }
+
+    private boolean isStale(LogisticsNetwork network) {
+        if (builtVersion != network.getTopologyVersion())
+            return true;
+        for (LogisticsNodeEntity node : nodes) {
+            if (node.isRemoved())
+                return true;
+        }
+        return false;
+    }
+
+    private void rebuild(LogisticsNetwork network, NodeIndex nodeIndex) {
+        // Deterministic order
+        List<UUID> sortedUuids = new ArrayList<>(network.getNodeUuids());
+        sortedUuids.sort(NODE_ORDER);
+
+        List<LogisticsNodeEntity> loaded = new ArrayList<>(sortedUuids.size());
+        for (UUID nodeId : sortedUuids) {
+            LogisticsNodeEntity node = nodeIndex.get(nodeId);
+            if (node != null) {
+                loaded.add(node);
+            } else if (Config.debugMode) {
+                LOGGER.debug("Node {} missing from world, skipping.", nodeId);
+            }
+        }
+
+        nodes = loaded.toArray(new LogisticsNodeEntity[0]);
+        tiers = new int[nodes.length];
+        dimensional = new boolean[nodes.length];
+        signals = new int[nodes.length];
+        orderedTargets = newOrderTable(nodes.length);
+        orderedModes = new DistributionMode[orderedTargets.length];
+        nodeSlots.clear();
+        for (int n = 0; n < nodes.length; n++) {
+            nodeSlots.put(nodes[n].getUUID(), n);
+        }
+
+        Arrays.fill(itemRoutes, null);
+        resolve(ChannelType.ITEM, network.getItemImports());
+        resolve(ChannelType.FLUID, network.getFluidImports());
+        resolve(ChannelType.ENERGY, network.getEnergyImports());
+        resolve(ChannelType.CHEMICAL, network.getChemicalImports());
+        resolve(ChannelType.SOURCE, network.getSourceImports());
+        demand.rebuild(this);
+
+        builtVersion = network.getTopologyVersion();
+    }
+
+    private void resolve(ChannelType type, List<NodeRef>[] cache) {
+        List<TransferEngine.ImportTarget>[] byChannel = imports[type.ordinal()];
+        for (int i = 0; i < CHANNELS; i++) {
+            List<TransferEngine.ImportTarget> targets = byChannel[i];
+            targets.clear();
+            for (NodeRef ref : cache[i]) {
+                int slot = nodeSlots.getInt(ref.nodeId());
+                if (slot < 0)
+                    continue;
+                LogisticsNodeEntity node = nodes[slot];
+                ChannelData cd = node.getChannel(i);
+                if (cd != null) {
+                    targets.add(new TransferEngine.ImportTarget(node, cd, i));
+                }
+            }
+        }
+    }
+
+    int size() {
+        return nodes.length;
+    }
+
+    LogisticsNodeEntity node(int index) {
+        return nodes[index];
+    }
+
+    int tier(int index) {
+        return tiers[index];
+    }
+
+    int signal(int index) {
+        return signals[index];
+    }
+
+    boolean isDimensional(LogisticsNodeEntity node) {
+        int slot = nodeSlots.getInt(node.getUUID());
+        return slot >= 0 && dimensional[slot];
+    }
+
+    /**
+     * Routing index over the item import targets of a channel, rebuilt when any
+     * of their filters change.
+     */
+    RoutingIndex itemRoutes(int channel) {
+        List<TransferEngine.ImportTarget> targets = imports(ChannelType.ITEM, channel);
+        RoutingIndex routes = itemRoutes[channel];
+        if (routes == null || !routes.isCurrent(targets)) {
+            routes = RoutingIndex.build(targets);
+            itemRoutes[channel] = routes;
+        }
+        return routes;
+    }
+
+    DemandIndex demand() {
+        return demand;
+    }
+
+    EnergyBalancer energyBalancer() {
+        return energyBalancer;
+    }
+
+    TransferEngine.ItemBuffers itemBuffers() {
+        return itemBuffers;
+    }
+
+    List<TransferEngine.ImportTarget> imports(ChannelType type, int channel) {
+        return imports[type.ordinal()][channel];
+    }
+
+    /**
+     * Target order for a sorted distribution mode, computed on first use and kept
+     * until the topology or any channel config changes.
+     */
+    List<TransferEngine.ImportTarget> sortedTargets(int nodeIndex, int channel, DistributionMode mode,
+            List<TransferEngine.ImportTarget> targets, Comparator<TransferEngine.ImportTarget> order) {
+        int slot = nodeIndex * LogisticsNodeEntity.CHANNEL_COUNT + channel;
+        if (orderedModes[slot] != mode || orderedTargets[slot] == null) {
+            List<TransferEngine.ImportTarget> sorted = new ArrayList<>(targets);
+            sorted.sort(order);
+            orderedTargets[slot] = List.copyOf(sorted);
+            orderedModes[slot] = mode;
+        }
+        return orderedTargets[slot];
+    }
+
+    /**
+     * Scratch list for a reordered copy of a cached target list; valid until the
+     * next call.
+     */
+    List<TransferEngine.ImportTarget> orderBuffer(List<TransferEngine.ImportTarget> targets) {
+        orderBuffer.clear();
+        for (int i = 0; i < targets.size(); i++) {
+            orderBuffer.add(targets.get(i));
+        }
+        return orderBuffer;
+    }
+}
@@ -6,7 +6,7 @@ import net.neoforged.bus.api.SubscribeEvent;
 import net.neoforged.fml.common.EventBusSubscriber;
 import net.neoforged.neoforge.event.tick.ServerTickEvent;
 
-// Dirty-only dispatch, no scan
+// Dirty + due-time dispatch, no scan
 @EventBusSubscriber
 public class NetworkScheduler {
 
@@ -0,0 +1,85 @@
+package me.almana.logisticsnetworks.logic;
+
+import me.almana.logisticsnetworks.data.NetworkRegistry;
+import me.almana.logisticsnetworks.entity.LogisticsNodeEntity;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.Direction;
+import net.minecraft.server.level.ServerLevel;
+import net.neoforged.neoforge.capabilities.BlockCapability;
+import net.neoforged.neoforge.capabilities.BlockCapabilityCache;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Per-node {@link BlockCapabilityCache}s for the attached block, one per
+ * capability and side. Rebuilt when the node's level or attached position
+ * changes; invalidation only wakes the node's own network.
+ */
+public final class NodeCapabilityCache {
+
+    // Six directions plus the null side
+    private static final int SIDE_SLOTS = 7;
+
+    private final LogisticsNodeEntity node;
+    private final Map<BlockCapability<?, ?>, BlockCapabilityCache<?, ?>[]> caches = new IdentityHashMap<>();
+    @Nullable
+    private ServerLevel cachedLevel;
+    @Nullable
+    private BlockPos cachedPos;
+    private int generation;
+
+    public NodeCapabilityCache(LogisticsNodeEntity node) {
+        this.node = node;
+    }
+
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public <T> T getCapability(BlockCapability<T, @Nullable Direction> capability, @Nullable Direction side) {
+        if (!(node.level() instanceof ServerLevel level))
+            return null;
+
+        BlockPos pos = node.getAttachedPos();
+        if (level != cachedLevel || !pos.equals(cachedPos)) {
+            clear();
+            cachedLevel = level;
+            cachedPos = pos.immutable();
+        }
+
+        BlockCapabilityCache<?, ?>[] bySide = caches.computeIfAbsent(capability,
+                key -> new BlockCapabilityCache<?, ?>[SIDE_SLOTS]);
+        int slot = side == null ? SIDE_SLOTS - 1 : side.ordinal();
+        BlockCapabilityCache<T, @Nullable Direction> cache = (BlockCapabilityCache<T, @Nullable Direction>) bySide[slot];
+        if (cache == null) {
+            int createdIn = generation;
+            cache = BlockCapabilityCache.create(capability, level, cachedPos, side,
+                    () -> createdIn == generation && !node.isRemoved(),
+                    this::onInvalidated);
+            bySide[slot] = cache;
+        }
+        return cache.getCapability();
+    }
+
+    public void clear() {
+        // Listeners from older generations report themselves invalid and are dropped
+        generation++;
+        caches.clear();
+        cachedLevel = null;
+        cachedPos = null;
+    }
+
+    private void onInvalidated() {
+        if (!(node.level() instanceof ServerLevel level))
+            return;
+
+        // The handler may be a different inventory now; drop saturation and empty-source hints
+        node.markContentChanged(level.getGameTime());
+        node.invalidateItemCounts();
+        UUID networkId = node.getNetworkId();
+        if (networkId != null) {
+            NetworkRegistry.get(level).markNetworkDirty(networkId);
+        }
+    }
+}
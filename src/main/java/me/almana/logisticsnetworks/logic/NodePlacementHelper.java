@@ -1,5 +1,6 @@
 package me.almana.logisticsnetworks.logic;
 
+import me.almana.logisticsnetworks.data.NetworkRegistry;
 import me.almana.logisticsnetworks.entity.LogisticsNodeEntity;
 import me.almana.logisticsnetworks.integration.ars.ArsCompat;
 import me.almana.logisticsnetworks.integration.mekanism.MekanismCompat;
@@ -82,14 +83,19 @@ public final class NodePlacementHelper {
     }
 
     public static boolean hasNodeAttached(Level level, BlockPos pos) {
-        List<LogisticsNodeEntity> existingNodes = level.getEntitiesOfClass(LogisticsNodeEntity.class,
-                new AABB(pos).inflate(0.1));
-        for (LogisticsNodeEntity node : existingNodes) {
-            if (node.getAttachedPos().equals(pos)) {
-                return true;
-            }
+        return !getNodesAttachedAt(level, pos).isEmpty();
+    }
+
+    public static List<LogisticsNodeEntity> getNodesAttachedAt(Level level, BlockPos pos) {
+        if (level instanceof ServerLevel serverLevel) {
+            return NetworkRegistry.get(serverLevel).getNodeIndex().getNodesAt(serverLevel.dimension(), pos);
         }
-        return false;
+
+        // Client has no index, fall back to an entity query
+        List<LogisticsNodeEntity> nodes = level.getEntitiesOfClass(LogisticsNodeEntity.class,
+                new AABB(pos).inflate(0.5));
+        nodes.removeIf(node -> !node.getAttachedPos().equals(pos));
+        return nodes;
     }
 
     public static LogisticsNodeEntity placeNode(Level level, BlockPos pos) {
@@ -0,0 +1,48 @@
+package me.almana.logisticsnetworks.logic;
+
+import it.unimi.dsi.fastutil.objects.ReferenceOpenHashSet;
+import me.almana.logisticsnetworks.integration.mekanism.MekanismCompat;
+import me.almana.logisticsnetworks.registration.ModTags;
+import net.minecraft.core.Holder;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.level.material.Fluid;
+import net.neoforged.neoforge.fluids.FluidStack;
+
+import java.util.Set;
+
+/**
+ * Membership tables for the resource blacklist tags, rebuilt whenever tags
+ * are (re)loaded so transfer paths can test identity instead of tags.
+ */
+public final class ResourceBlacklist {
+
+    private static volatile Set<Item> items = Set.of();
+    private static volatile Set<Fluid> fluids = Set.of();
+
+    private ResourceBlacklist() {
+    }
+
+    public static void rebuild() {
+        Set<Item> newItems = new ReferenceOpenHashSet<>();
+        for (Holder<Item> holder : BuiltInRegistries.ITEM.getTagOrEmpty(ModTags.RESOURCE_BLACKLIST_ITEMS)) {
+            newItems.add(holder.value());
+        }
+        Set<Fluid> newFluids = new ReferenceOpenHashSet<>();
+        for (Holder<Fluid> holder : BuiltInRegistries.FLUID.getTagOrEmpty(ModTags.RESOURCE_BLACKLIST_FLUIDS)) {
+            newFluids.add(holder.value());
+        }
+        items = newItems;
+        fluids = newFluids;
+        MekanismCompat.rebuildChemicalBlacklist();
+    }
+
+    public static boolean isBlacklisted(ItemStack stack) {
+        return !stack.isEmpty() && items.contains(stack.getItem());
+    }
+
+    public static boolean isBlacklisted(FluidStack stack) {
+        return !stack.isEmpty() && fluids.contains(stack.getFluid());
+    }
+}
@@ -0,0 +1,66 @@
+package me.almana.logisticsnetworks.logic;
+
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ReferenceOpenHashSet;
+import net.minecraft.world.item.Item;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Item to import target lookup for one item channel of a network. Targets whose
+ * filters reduce to plain items and tags are indexed by item; the rest are left
+ * to normal filter evaluation. Stale once any target's filter program is
+ * recompiled or tags reload.
+ */
+final class RoutingIndex {
+
+    private final FilterProgram[] programs;
+    private final int tagEpoch;
+    private final Set<TransferEngine.ImportTarget> routed = new ReferenceOpenHashSet<>();
+    private final Reference2ObjectOpenHashMap<Item, List<TransferEngine.ImportTarget>> byItem =
+            new Reference2ObjectOpenHashMap<>();
+
+    private RoutingIndex(List<TransferEngine.ImportTarget> targets) {
+        this.programs = new FilterProgram[targets.size()];
+        this.tagEpoch = FilterProgram.getTagEpoch();
+        for (int i = 0; i < targets.size(); i++) {
+            TransferEngine.ImportTarget target = targets.get(i);
+            FilterProgram program = target.channel().getFilterProgram();
+            programs[i] = program;
+
+            Set<Item> items = program.getRoutedItems();
+            if (items == null)
+                continue;
+            routed.add(target);
+            for (Item item : items) {
+                byItem.computeIfAbsent(item, key -> new ArrayList<>(2)).add(target);
+            }
+        }
+    }
+
+    static RoutingIndex build(List<TransferEngine.ImportTarget> targets) {
+        return new RoutingIndex(targets);
+    }
+
+    boolean isCurrent(List<TransferEngine.ImportTarget> targets) {
+        if (tagEpoch != FilterProgram.getTagEpoch() || programs.length != targets.size())
+            return false;
+        for (int i = 0; i < programs.length; i++) {
+            if (targets.get(i).channel().getFilterProgram() != programs[i])
+                return false;
+        }
+        return true;
+    }
+
+    boolean isRouted(TransferEngine.ImportTarget target) {
+        return routed.contains(target);
+    }
+
+    @Nullable
+    List<TransferEngine.ImportTarget> targetsFor(Item item) {
+        return byItem.get(item);
+    }
+}
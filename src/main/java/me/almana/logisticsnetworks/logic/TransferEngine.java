@@ -1,29 +1,32 @@
 package me.almana.logisticsnetworks.logic;
 
 import com.mojang.logging.LogUtils;
+import it.unimi.dsi.fastutil.booleans.BooleanArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenCustomHashMap;
+import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2ObjectOpenCustomHashMap;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
 import me.almana.logisticsnetworks.Config;
 import me.almana.logisticsnetworks.data.*;
 import me.almana.logisticsnetworks.data.NetworkRegistry;
-import me.almana.logisticsnetworks.data.NodeRef;
 import me.almana.logisticsnetworks.entity.LogisticsNodeEntity;
 import me.almana.logisticsnetworks.filter.AmountFilterData;
 import me.almana.logisticsnetworks.filter.FilterItemData;
-import me.almana.logisticsnetworks.filter.NbtFilterData;
-import me.almana.logisticsnetworks.filter.SlotFilterData;
 import me.almana.logisticsnetworks.integration.ars.ArsCompat;
 import me.almana.logisticsnetworks.integration.ars.SourceTransferHelper;
 import me.almana.logisticsnetworks.integration.mekanism.ChemicalTransferHelper;
 import me.almana.logisticsnetworks.integration.mekanism.MekanismCompat;
-import me.almana.logisticsnetworks.registration.ModTags;
 import me.almana.logisticsnetworks.upgrade.NodeUpgradeData;
 import net.minecraft.core.BlockPos;
+import net.minecraft.core.Direction;
 import net.minecraft.core.HolderLookup;
 import net.minecraft.nbt.CompoundTag;
 import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.level.ServerLevel;
-import net.minecraft.world.entity.Entity;
 import net.minecraft.world.item.Item;
 import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.item.ItemStackLinkedSet;
 
 import net.neoforged.neoforge.capabilities.Capabilities;
 import net.neoforged.neoforge.energy.IEnergyStorage;
@@ -44,197 +47,509 @@ public class TransferEngine {
     private static final float BACKOFF_DECAY_DIVISOR = 3f;
     private static final float BACKOFF_MAX_TICKS = 40f;
     private static final float BACKOFF_MAX_TICKS_ENERGY = 5f;
+    // Returned by item/fluid transfers when the source holds nothing at all
+    private static final int SOURCE_EMPTY = -2;
 
-    private record ImportTarget(LogisticsNodeEntity node, ChannelData channel, int channelIndex) {
-    }
+    public static final long NO_PENDING_WORK = Long.MAX_VALUE;
 
-    private record ItemTransferTarget(IItemHandler handler, ItemStack[] importFilters,
-            FilterMode importFilterMode, AmountConstraints constraints, boolean hasItemNbtFilter,
-            boolean[] allowedSlots) {
+    record ImportTarget(LogisticsNodeEntity node, ChannelData channel, int channelIndex) {
     }
 
-    private record AmountConstraints(boolean hasExportThreshold, int exportThreshold,
-            boolean hasImportThreshold, int importThreshold,
-            boolean hasPerEntryAmounts) {
-    }
+    /**
+     * Item buffers reused by every firing of a network, kept on its
+     * {@link NetworkExecutionContext}. Valid only until the next firing.
+     */
+    static final class ItemBuffers {
+        private final List<ItemTransferTarget> targetPool = new ArrayList<>();
+        private final List<ItemTransferTarget> reachable = new ArrayList<>();
+        private final IntArrayList reachableSlots = new IntArrayList();
+        private final List<LogisticsNodeEntity> sharing = new ArrayList<>();
+        private final SourceSnapshot snapshot = new SourceSnapshot();
+        private final FilterItemData.ReadCache filterReadCache = FilterItemData.createReadCache();
+        private boolean[] openTargets = new boolean[0];
+        private int[] quotas = new int[0];
+
+        private void clear() {
+            reachable.clear();
+            reachableSlots.clear();
+            filterReadCache.clear();
+        }
+
+        private ItemTransferTarget nextTarget() {
+            if (reachable.size() == targetPool.size()) {
+                targetPool.add(new ItemTransferTarget());
+            }
+            ItemTransferTarget target = targetPool.get(reachable.size());
+            reachable.add(target);
+            return target;
+        }
+
+        private boolean[] openTargets(int size) {
+            if (openTargets.length < size) {
+                openTargets = new boolean[size];
+            }
+            return openTargets;
+        }
 
-    private record RecipeEntry(ItemStack item, String tag, int amount) {
+        private int[] quotas(int size) {
+            if (quotas.length < size) {
+                quotas = new int[size];
+            }
+            Arrays.fill(quotas, 0, size, 0);
+            return quotas;
+        }
     }
 
-    private record RecipeCursorResult(int moved, int entryIndex, int entryRemaining, boolean completed) {
+    /**
+     * A reachable item target of one firing, pooled on {@link ItemBuffers}.
+     */
+    private static final class ItemTransferTarget {
+        ImportTarget origin;
+        IItemHandler handler;
+        AmountConstraints constraints;
+        ItemCountTable counts;
+        final TargetSlotIndex slotIndex = new TargetSlotIndex();
+        // Per item group of the source snapshot, see SourceSnapshot#resetMatches
+        byte[] matches = new byte[0];
+
+        void reset(ImportTarget origin, IItemHandler handler, AmountConstraints constraints,
+                @Nullable BitSet allowedSlots, ItemCountTable counts) {
+            this.origin = origin;
+            this.handler = handler;
+            this.constraints = constraints;
+            this.counts = counts;
+            slotIndex.reset(handler, allowedSlots);
+        }
     }
 
-    private static List<RecipeEntry> buildRecipe(ItemStack[] exportFilters, HolderLookup.Provider provider) {
-        List<RecipeEntry> recipe = new ArrayList<>();
-        if (exportFilters == null)
-            return recipe;
+    /**
+     * Per-run view of a target's insertable slots: partially filled slots keyed
+     * by item and components plus the empty slots. Built on first insert and
+     * updated in place as real inserts land, so a batch never rescans the
+     * whole inventory. Slots are always re-read before writing.
+     */
+    private static final class TargetSlotIndex {
+        private IItemHandler handler;
+        @Nullable
+        private BitSet allowedSlots;
+        private boolean strict;
+        private final Object2ObjectOpenCustomHashMap<ItemStack, IntArrayList> partialSlots =
+                new Object2ObjectOpenCustomHashMap<>(ItemStackLinkedSet.TYPE_AND_TAG);
+        private final List<IntArrayList> spareLists = new ArrayList<>();
+        private final IntArrayList emptySlots = new IntArrayList();
+        private boolean built;
+        private boolean received;
+        private boolean refused;
+
+        void reset(IItemHandler handler, @Nullable BitSet allowedSlots) {
+            this.handler = handler;
+            this.allowedSlots = allowedSlots;
+            // Slot-restricted inserts write modifiable handlers directly
+            this.strict = allowedSlots != null && handler instanceof IItemHandlerModifiable;
+            built = false;
+            received = false;
+            refused = false;
+        }
 
-        for (ItemStack filter : exportFilters) {
-            if (!FilterItemData.isFilterItem(filter))
-                continue;
-            int cap = FilterItemData.getCapacity(filter);
-            for (int slot = 0; slot < cap; slot++) {
-                int amount = FilterItemData.getEntryAmount(filter, slot);
-                if (amount <= 0)
-                    continue;
+        ItemStack insert(ItemStack stack, boolean simulate) {
+            if (stack.isEmpty()) {
+                return ItemStack.EMPTY;
+            }
+            if (!built) {
+                build();
+            }
 
-                String tag = FilterItemData.getEntryTag(filter, slot);
-                if (tag != null) {
-                    recipe.add(new RecipeEntry(ItemStack.EMPTY, tag, amount));
-                    continue;
+            ItemStack remaining = insertIndexed(stack.copy(), simulate);
+            if (remaining.getCount() == stack.getCount()) {
+                refused = true;
+            } else if (!simulate) {
+                received = true;
+            }
+            return remaining;
+        }
+
+        private ItemStack insertIndexed(ItemStack remaining, boolean simulate) {
+            IntArrayList partial = partialSlots.get(remaining);
+            if (partial != null) {
+                for (int i = 0; i < partial.size() && !remaining.isEmpty();) {
+                    int slot = partial.getInt(i);
+                    int before = remaining.getCount();
+                    remaining = insertIntoSlot(slot, remaining, simulate);
+                    // A slot that refused the whole stack is done for this run
+                    if (!simulate && (remaining.getCount() == before || isFull(slot, handler.getStackInSlot(slot)))) {
+                        partial.removeInt(i);
+                    } else {
+                        i++;
+                    }
                 }
+            }
 
-                ItemStack entry = FilterItemData.getEntry(filter, slot, provider);
-                if (!entry.isEmpty()) {
-                    recipe.add(new RecipeEntry(entry, null, amount));
+            for (int i = 0; i < emptySlots.size() && !remaining.isEmpty();) {
+                int slot = emptySlots.getInt(i);
+                remaining = insertIntoSlot(slot, remaining, simulate);
+                ItemStack placed = simulate ? ItemStack.EMPTY : handler.getStackInSlot(slot);
+                if (placed.isEmpty()) {
+                    i++;
+                    continue;
+                }
+                emptySlots.removeInt(i);
+                if (!isFull(slot, placed)) {
+                    addPartial(placed, slot);
                 }
             }
+            return remaining;
         }
-        return recipe;
-    }
 
-    private static boolean matchesRecipeEntry(RecipeEntry entry, ItemStack candidate) {
-        if (entry.tag != null) {
-            return candidate.getTags()
-                    .map(t -> t.location().toString())
-                    .anyMatch(entry.tag::equals);
+        void invalidate() {
+            built = false;
         }
-        return !entry.item.isEmpty() && ItemStack.isSameItem(entry.item, candidate);
-    }
 
-    public static boolean processNetwork(LogisticsNetwork network, MinecraftServer server) {
-        if (network == null || server == null)
-            return false;
-
-        NetworkRegistry registry = NetworkRegistry.get((ServerLevel) server.overworld());
-        if (network.isCacheDirty()) {
-            network.rebuildCache(registry);
-            network.clearCacheDirty();
+        boolean hasReceived() {
+            return received;
         }
 
-        Set<UUID> nodeUuids = network.getNodeUuids();
-        if (nodeUuids.isEmpty())
-            return false;
+        /**
+         * True once an insert attempt came back whole and the index has no empty
+         * or partially filled slot left, so no item of any type can be accepted.
+         */
+        boolean isFull() {
+            if (!built || !refused || !emptySlots.isEmpty())
+                return false;
+            for (IntArrayList slots : partialSlots.values()) {
+                if (!slots.isEmpty())
+                    return false;
+            }
+            return true;
+        }
 
-        // Deterministic order
-        List<UUID> sortedUuids = new ArrayList<>(nodeUuids);
-        sortedUuids.sort(Comparator.comparingLong(UUID::getMostSignificantBits)
-                .thenComparingLong(UUID::getLeastSignificantBits));
+        private void build() {
+            for (IntArrayList slots : partialSlots.values()) {
+                slots.clear();
+                spareLists.add(slots);
+            }
+            partialSlots.clear();
+            emptySlots.clear();
+            int slots = handler.getSlots();
+            for (int slot = nextAllowedSlot(allowedSlots, 0, slots); slot >= 0;
+                    slot = nextAllowedSlot(allowedSlots, slot + 1, slots)) {
+                ItemStack slotStack = handler.getStackInSlot(slot);
+                if (slotStack.isEmpty()) {
+                    emptySlots.add(slot);
+                } else if (!isFull(slot, slotStack)) {
+                    addPartial(slotStack, slot);
+                }
+            }
+            built = true;
+        }
 
-        // Cache nodes and upgrades
-        List<LogisticsNodeEntity> sortedNodes = new ArrayList<>(sortedUuids.size());
-        Map<UUID, Boolean> dimensionalCache = new HashMap<>(sortedUuids.size());
-        Map<UUID, Integer> tierCache = new HashMap<>(sortedUuids.size());
-        Map<UUID, LogisticsNodeEntity> nodeCache = new HashMap<>(sortedUuids.size());
+        private void addPartial(ItemStack stack, int slot) {
+            IntArrayList slots = partialSlots.get(stack);
+            if (slots == null) {
+                slots = spareLists.isEmpty() ? new IntArrayList() : spareLists.remove(spareLists.size() - 1);
+                partialSlots.put(stack.copyWithCount(1), slots);
+            }
+            slots.add(slot);
+        }
 
-        for (UUID nodeId : sortedUuids) {
-            LogisticsNodeEntity node = findNode(server, nodeId);
-            if (node != null && node.isValidNode()) {
-                sortedNodes.add(node);
-                dimensionalCache.put(node.getUUID(), NodeUpgradeData.hasDimensionalUpgrade(node));
-                tierCache.put(node.getUUID(), NodeUpgradeData.getUpgradeTier(node));
-                nodeCache.put(node.getUUID(), node);
-            } else if (Config.debugMode) {
-                LOGGER.debug("Node {} missing from world, skipping.", nodeId);
+        /**
+         * Strict inserts cap at the item's stack size; otherwise only the slot
+         * limit counts, since stack-upgraded storage holds more than a stack and
+         * insertItem has the final say.
+         */
+        private boolean isFull(int slot, ItemStack slotStack) {
+            if (slotStack.isEmpty())
+                return false;
+            int limit = handler.getSlotLimit(slot);
+            if (strict) {
+                limit = Math.min(limit, slotStack.getMaxStackSize());
             }
+            return slotStack.getCount() >= limit;
         }
 
-        if (sortedNodes.isEmpty())
-            return false;
+        private ItemStack insertIntoSlot(int slot, ItemStack remaining, boolean simulate) {
+            if (!strict) {
+                return handler.insertItem(slot, remaining, simulate);
+            }
 
-        Map<UUID, Integer> signalCache = buildSignalCache(sortedNodes);
-        if (signalCache.isEmpty())
-            return false;
+            IItemHandlerModifiable modifiable = (IItemHandlerModifiable) handler;
+            ItemStack slotStack = modifiable.getStackInSlot(slot);
+            boolean slotEmpty = slotStack.isEmpty();
+            if (!slotEmpty && !ItemStack.isSameItemSameComponents(slotStack, remaining)) {
+                return remaining;
+            }
+            if (!modifiable.isItemValid(slot, remaining)) {
+                return remaining;
+            }
 
-        List<ImportTarget>[] itemImports = resolveCache(network.getItemImports(), nodeCache);
-        List<ImportTarget>[] fluidImports = resolveCache(network.getFluidImports(), nodeCache);
-        List<ImportTarget>[] energyImports = resolveCache(network.getEnergyImports(), nodeCache);
-        List<ImportTarget>[] chemicalImports = resolveCache(network.getChemicalImports(), nodeCache);
-        List<ImportTarget>[] sourceImports = resolveCache(network.getSourceImports(), nodeCache);
+            int slotLimit = Math.min(modifiable.getSlotLimit(slot), remaining.getMaxStackSize());
+            if (!slotEmpty) {
+                slotLimit = Math.min(slotLimit, slotStack.getMaxStackSize());
+            }
+            int currentCount = slotEmpty ? 0 : slotStack.getCount();
+            int toInsert = Math.min(slotLimit - currentCount, remaining.getCount());
+            if (toInsert <= 0) {
+                return remaining;
+            }
 
-        boolean anyActivePotential = false;
-        for (LogisticsNodeEntity sourceNode : sortedNodes) {
-            if (processNode(sourceNode, itemImports, fluidImports, energyImports, chemicalImports,
-                    sourceImports, signalCache, dimensionalCache, tierCache)) {
-                anyActivePotential = true;
+            if (!simulate) {
+                if (slotEmpty) {
+                    modifiable.setStackInSlot(slot, remaining.copyWithCount(toInsert));
+                } else {
+                    ItemStack updated = slotStack.copy();
+                    updated.grow(toInsert);
+                    modifiable.setStackInSlot(slot, updated);
+                }
             }
+            return remaining.copyWithCount(remaining.getCount() - toInsert);
         }
-
-        return anyActivePotential;
     }
 
-    private static Map<UUID, Integer> buildSignalCache(List<LogisticsNodeEntity> nodes) {
-        Map<UUID, Integer> signalCache = new HashMap<>();
-        boolean hasAnyExporter = false;
+    /**
+     * One pass over the source inventory per run: occupied slots grouped by item
+     * and components, with blacklist and export filter evaluated once per group.
+     * Recaptured in place by each firing.
+     */
+    private static final class SourceSnapshot {
+        private static final byte UNKNOWN = 0;
+        private static final byte MATCH = 1;
+        private static final byte NO_MATCH = 2;
+
+        private int[] slotGroups = new int[0];
+        private int[] exportableSlots = new int[0];
+        private int exportableCount;
+        private final List<ItemStack> groupStacks = new ArrayList<>();
+        private final BooleanArrayList groupExportable = new BooleanArrayList();
+        private final Object2IntOpenCustomHashMap<ItemStack> groupIndex = new Object2IntOpenCustomHashMap<>(
+                ItemStackLinkedSet.TYPE_AND_TAG);
+        private final Reference2IntOpenHashMap<ImportTarget> routedTargets = new Reference2IntOpenHashMap<>();
+        // Exportable slots per recipe entry, filled on first use
+        private final List<IntArrayList> entrySlots = new ArrayList<>();
+        private final BitSet entriesResolved = new BitSet();
+        private byte[] entryMatches = new byte[0];
+
+        SourceSnapshot() {
+            groupIndex.defaultReturnValue(-1);
+            routedTargets.defaultReturnValue(-1);
+        }
 
-        for (LogisticsNodeEntity node : nodes) {
-            if (!node.isValidNode())
-                continue;
-            boolean needsSignal = false;
-            boolean hasExport = false;
-
-            for (int i = 0; i < LogisticsNodeEntity.CHANNEL_COUNT; i++) {
-                ChannelData ch = node.getChannel(i);
-                if (ch != null && ch.isEnabled()) {
-                    if (ch.getRedstoneMode() != RedstoneMode.ALWAYS_ON) {
-                        needsSignal = true;
-                    }
-                    if (ch.getMode() == ChannelMode.EXPORT) {
-                        hasExport = true;
-                    }
+        void capture(IItemHandler source, @Nullable BitSet allowedSlots,
+                FilterProgram exportProgram, @Nullable HolderLookup.Provider provider) {
+            int slots = source.getSlots();
+            if (slotGroups.length < slots) {
+                slotGroups = new int[slots];
+                exportableSlots = new int[slots];
+            }
+            Arrays.fill(slotGroups, 0, slots, -1);
+            exportableCount = 0;
+            groupStacks.clear();
+            groupExportable.clear();
+            groupIndex.clear();
+            entriesResolved.clear();
+
+            for (int slot = nextAllowedSlot(allowedSlots, 0, slots); slot >= 0;
+                    slot = nextAllowedSlot(allowedSlots, slot + 1, slots)) {
+                ItemStack stack = source.getStackInSlot(slot);
+                if (stack.isEmpty())
+                    continue;
+
+                int group = groupIndex.getInt(stack);
+                if (group < 0) {
+                    group = groupStacks.size();
+                    ItemStack key = stack.copyWithCount(1);
+                    groupIndex.put(key, group);
+                    groupStacks.add(key);
+                    groupExportable.add(!ResourceBlacklist.isBlacklisted(key)
+                            && (provider == null || exportProgram.matchesItem(key, provider, null)));
+                }
+                slotGroups[slot] = group;
+                if (groupExportable.getBoolean(group)) {
+                    exportableSlots[exportableCount++] = slot;
                 }
             }
+        }
 
-            if (hasExport)
-                hasAnyExporter = true;
+        boolean isEmpty() {
+            return exportableCount == 0;
+        }
 
-            if (node.level() instanceof ServerLevel level) {
-                signalCache.put(node.getUUID(), needsSignal ? level.getBestNeighborSignal(node.getAttachedPos()) : 0);
+        /**
+         * Returns {@code table}, or a larger one, with an UNKNOWN entry for every
+         * item group of this snapshot.
+         */
+        byte[] resetMatches(byte[] table) {
+            int groups = groupStacks.size();
+            if (table.length < groups) {
+                return new byte[Math.max(groups, table.length * 2)];
             }
+            Arrays.fill(table, 0, groups, UNKNOWN);
+            return table;
         }
 
-        return hasAnyExporter ? signalCache : Collections.emptyMap();
-    }
+        boolean targetAccepts(byte[] matches, int slot, FilterProgram importProgram,
+                @Nullable HolderLookup.Provider provider) {
+            int group = slotGroups[slot];
+            if (matches[group] == UNKNOWN) {
+                boolean accepted = provider == null
+                        || importProgram.matchesItem(groupStacks.get(group), provider, null);
+                matches[group] = accepted ? MATCH : NO_MATCH;
+            }
+            return matches[group] == MATCH;
+        }
+
+        IntArrayList slotsMatching(int entryIndex, FilterProgram.RecipeEntry entry) {
+            while (entrySlots.size() <= entryIndex) {
+                entrySlots.add(new IntArrayList());
+            }
+            IntArrayList slots = entrySlots.get(entryIndex);
+            if (entriesResolved.get(entryIndex))
+                return slots;
+
+            slots.clear();
+            entryMatches = resetMatches(entryMatches);
+            for (int i = 0; i < exportableCount; i++) {
+                int slot = exportableSlots[i];
+                int group = slotGroups[slot];
+                if (entryMatches[group] == UNKNOWN) {
+                    entryMatches[group] = entry.matches(groupStacks.get(group)) ? MATCH : NO_MATCH;
+                }
+                if (entryMatches[group] == MATCH) {
+                    slots.add(slot);
+                }
+            }
+            entriesResolved.set(entryIndex);
+            return slots;
+        }
 
-    @SuppressWarnings("unchecked")
-    private static List<ImportTarget>[] resolveCache(List<NodeRef>[] cache,
-            Map<UUID, LogisticsNodeEntity> nodeCache) {
-        List<ImportTarget>[] resolved = new List[9];
-        for (int i = 0; i < 9; i++) {
-            List<NodeRef> cachedNodes = cache[i];
-            List<ImportTarget> targets = new ArrayList<>(cachedNodes.size());
-            for (NodeRef ref : cachedNodes) {
-                LogisticsNodeEntity node = nodeCache.get(ref.nodeId());
-                if (node == null)
+        /**
+         * Fills the match tables of routed targets from the routing index: one
+         * lookup per item group instead of a filter check per group and target.
+         */
+        void applyRoutes(RoutingIndex routes, List<ItemTransferTarget> targets) {
+            routedTargets.clear();
+            for (int i = 0; i < targets.size(); i++) {
+                ItemTransferTarget target = targets.get(i);
+                if (routes.isRouted(target.origin)) {
+                    routedTargets.put(target.origin, i);
+                    Arrays.fill(target.matches, 0, groupStacks.size(), NO_MATCH);
+                }
+            }
+            if (routedTargets.isEmpty())
+                return;
+
+            for (int group = 0; group < groupStacks.size(); group++) {
+                List<ImportTarget> accepting = routes.targetsFor(groupStacks.get(group).getItem());
+                if (accepting == null)
                     continue;
-                ChannelData cd = node.getChannel(i);
-                if (cd != null) {
-                    targets.add(new ImportTarget(node, cd, i));
+                for (ImportTarget target : accepting) {
+                    int i = routedTargets.getInt(target);
+                    if (i >= 0) {
+                        targets.get(i).matches[group] = MATCH;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Marks every item group the requesting target is not short of as a
+         * non-match, leaving the rest to its filter.
+         */
+        void applyDemand(DemandIndex demand, ImportTarget origin, byte[] matches, long gameTime) {
+            for (int group = 0; group < groupStacks.size(); group++) {
+                if (matches[group] != NO_MATCH && !demand.wants(origin, groupStacks.get(group).getItem(), gameTime)) {
+                    matches[group] = NO_MATCH;
                 }
             }
-            resolved[i] = targets;
         }
-        return resolved;
+
+        // True unless every item group has been ruled out
+        boolean mayMatch(byte[] matches) {
+            for (int group = 0; group < groupStacks.size(); group++) {
+                if (matches[group] != NO_MATCH)
+                    return true;
+            }
+            return false;
+        }
+
+        boolean isSnapshotStack(int slot, ItemStack stack) {
+            return ItemStack.isSameItemSameComponents(groupStacks.get(slotGroups[slot]), stack);
+        }
+    }
+
+    private record AmountConstraints(boolean hasExportThreshold, int exportThreshold,
+            boolean hasImportThreshold, int importThreshold,
+            boolean hasPerEntryAmounts) {
+    }
+
+    private record RecipeCursorResult(int moved, int entryIndex, int entryRemaining, boolean completed) {
     }
 
-    private static boolean processNode(LogisticsNodeEntity sourceNode,
-            List<ImportTarget>[] itemImports,
-            List<ImportTarget>[] fluidImports,
-            List<ImportTarget>[] energyImports,
-            List<ImportTarget>[] chemicalImports,
-            List<ImportTarget>[] sourceImports,
-            Map<UUID, Integer> signalCache,
-            Map<UUID, Boolean> dimensionalCache,
-            Map<UUID, Integer> tierCache) {
+    /**
+     * Runs every due channel in the network and returns the game tick at which the
+     * earliest remaining channel becomes due, or {@link #NO_PENDING_WORK}.
+     */
+    public static long processNetwork(LogisticsNetwork network, MinecraftServer server) {
+        if (network == null || server == null)
+            return NO_PENDING_WORK;
+
+        NetworkRegistry registry = NetworkRegistry.get((ServerLevel) server.overworld());
+        network.refreshCache(registry);
+        NodeIndex nodeIndex = registry.getNodeIndex();
+
+        if (network.getNodeUuids().isEmpty())
+            return NO_PENDING_WORK;
+
+        NetworkExecutionContext context = network.getExecutionContext();
+        if (!context.prepare(network, nodeIndex))
+            return NO_PENDING_WORK;
+
+        EnergyBalancer energy = context.energyBalancer();
+        energy.clear();
+
+        long nextDue = NO_PENDING_WORK;
+        for (int n = 0; n < context.size(); n++) {
+            nextDue = Math.min(nextDue, processNode(context, n));
+        }
+        nextDue = Math.min(nextDue, balanceEnergy(context, energy));
+
+        return nextDue;
+    }
 
+    /**
+     * Solves all energy exporters queued by {@link #processNode} in one pass and
+     * applies the per-channel backoff bookkeeping.
+     */
+    private static long balanceEnergy(NetworkExecutionContext context, EnergyBalancer energy) {
+        energy.solve(context);
+
+        long nextDue = NO_PENDING_WORK;
+        for (int k = 0; k < energy.size(); k++) {
+            EnergyBalancer.Exporter exporter = energy.get(k);
+            LogisticsNodeEntity sourceNode = context.node(exporter.nodeIndex);
+            long gameTime = sourceNode.level().getGameTime();
+            int sourceTier = context.tier(exporter.nodeIndex);
+
+            if (!exporter.anyReachable) {
+                nextDue = Math.min(nextDue, gameTime + getConfiguredDelay(exporter.channel, sourceTier));
+                continue;
+            }
+            updateBackoff(sourceNode, exporter.channel, exporter.channelIndex, exporter.moved > 0, gameTime,
+                    sourceTier, exporter.targets.size());
+            nextDue = Math.min(nextDue,
+                    getNextDueTick(sourceNode, exporter.channel, exporter.channelIndex, sourceTier));
+        }
+        return nextDue;
+    }
+
+    private static long processNode(NetworkExecutionContext context, int nodeIndex) {
+        LogisticsNodeEntity sourceNode = context.node(nodeIndex);
         if (!sourceNode.isValidNode())
-            return false;
+            return NO_PENDING_WORK;
 
         ServerLevel sourceLevel = (ServerLevel) sourceNode.level();
         long gameTime = sourceLevel.getGameTime();
-        int redstoneSignal = signalCache.getOrDefault(sourceNode.getUUID(), 0);
-        boolean hasActivePotential = false;
-        int sourceTier = tierCache.getOrDefault(sourceNode.getUUID(), 0);
+        int redstoneSignal = context.signal(nodeIndex);
+        long nextDue = NO_PENDING_WORK;
+        int sourceTier = context.tier(nodeIndex);
 
         for (int i = 0; i < LogisticsNodeEntity.CHANNEL_COUNT; i++) {
             ChannelData channel = sourceNode.getChannel(i);
@@ -245,60 +560,116 @@ public class TransferEngine {
             if (!isRedstoneActive(channel.getRedstoneMode(), redstoneSignal))
                 continue;
 
-            List<ImportTarget> targets = switch (channel.getType()) {
-                case FLUID -> fluidImports[i];
-                case ENERGY -> energyImports[i];
-                case CHEMICAL -> chemicalImports[i];
-                case SOURCE -> sourceImports[i];
-                default -> itemImports[i];
-            };
-
-            if (targets == null || targets.isEmpty())
+            List<ImportTarget> targets = context.imports(channel.getType(), i);
+            if (targets.isEmpty())
+                continue;
+            if (channel.getType() == ChannelType.ITEM && context.demand().isRequestOnly(i)
+                    && !context.demand().hasDemand(i, gameTime)) {
+                // Nothing requested, leave the source untouched until a requester runs short
+                nextDue = Math.min(nextDue, gameTime + DemandIndex.RECHECK_TICKS);
                 continue;
+            }
 
-            hasActivePotential = true;
+            long emptySince = sourceNode.getSourceEmptySince(i);
+            if (emptySince >= 0) {
+                if (sourceNode.getContentChangeTick() >= emptySince) {
+                    // Source changed since it was seen empty
+                    sourceNode.clearSourceEmpty(i);
+                    sourceNode.setBackoffTicks(i, 0f);
+                } else if (gameTime < emptySince + getEmptyRecheckTicks(channel, sourceTier)) {
+                    nextDue = Math.min(nextDue, emptySince + getEmptyRecheckTicks(channel, sourceTier));
+                    continue;
+                }
+            }
 
             // Backoff/Cool-down Check
-            if (isOnCooldown(sourceNode, channel, i, sourceTier, gameTime))
+            long dueTick = getNextDueTick(sourceNode, channel, i, sourceTier);
+            if (gameTime < dueTick) {
+                nextDue = Math.min(nextDue, dueTick);
                 continue;
+            }
 
-            targets = orderTargets(targets, channel.getDistributionMode(), sourceNode, i);
+            targets = orderTargets(context, nodeIndex, targets, channel.getDistributionMode(), sourceNode, i);
 
             int configuredBatch = getBatchLimit(channel.getType(), sourceTier);
             int effectiveBatchSize = Math.max(1, Math.min(channel.getBatchSize(), configuredBatch));
 
+            if (channel.getType() == ChannelType.ENERGY) {
+                // Energy is distributed network-wide once every due exporter is queued
+                if (!queueEnergyExport(context, nodeIndex, sourceNode, sourceLevel, channel, i, targets,
+                        effectiveBatchSize)) {
+                    nextDue = Math.min(nextDue, gameTime + getConfiguredDelay(channel, sourceTier));
+                }
+                continue;
+            }
+
             int result = switch (channel.getType()) {
                 case FLUID ->
-                    transferFluids(sourceNode, sourceLevel, channel, targets, effectiveBatchSize, dimensionalCache);
-                case ENERGY ->
-                    transferEnergy(sourceNode, sourceLevel, channel, targets, effectiveBatchSize, dimensionalCache);
+                    transferFluids(sourceNode, sourceLevel, channel, targets, effectiveBatchSize, context);
                 case CHEMICAL ->
-                    transferChemicals(sourceNode, sourceLevel, channel, targets, effectiveBatchSize, dimensionalCache);
+                    transferChemicals(sourceNode, sourceLevel, channel, targets, effectiveBatchSize, context);
                 case SOURCE ->
-                    transferSource(sourceNode, sourceLevel, channel, targets, effectiveBatchSize, dimensionalCache);
+                    transferSource(sourceNode, sourceLevel, channel, targets, effectiveBatchSize, context);
                 default ->
-                    transferItems(sourceNode, sourceLevel, channel, i, targets, effectiveBatchSize, dimensionalCache);
+                    transferItems(sourceNode, sourceLevel, channel, i, targets, effectiveBatchSize, context);
             };
 
-            if (result < 0)
+            if (result == SOURCE_EMPTY) {
+                sourceNode.markSourceEmpty(i, gameTime);
+                sourceNode.setLastExecution(i, gameTime);
+                nextDue = Math.min(nextDue, gameTime + getEmptyRecheckTicks(channel, sourceTier));
+                continue;
+            }
+            sourceNode.clearSourceEmpty(i);
+
+            if (result < 0) {
+                // Endpoints unloaded or unreachable, check again after the configured delay
+                nextDue = Math.min(nextDue, gameTime + getConfiguredDelay(channel, sourceTier));
                 continue;
+            }
 
             updateBackoff(sourceNode, channel, i, result > 0, gameTime, sourceTier, targets.size());
+            nextDue = Math.min(nextDue, getNextDueTick(sourceNode, channel, i, sourceTier));
         }
 
-        return hasActivePotential;
+        return nextDue;
+    }
+
+    /**
+     * Only {@code kept} saw this run's deltas; the node's other sides and other
+     * nodes on the same block must rescan.
+     */
+    private static void invalidateSharedCounts(LogisticsNodeEntity node, ItemCountTable kept,
+            List<LogisticsNodeEntity> scratch) {
+        node.invalidateItemCounts(kept);
+        if (!(node.level() instanceof ServerLevel level))
+            return;
+        NetworkRegistry.get(level).getNodeIndex().collectNodesAt(level.dimension(), node.getAttachedPos(), scratch);
+        for (int i = 0; i < scratch.size(); i++) {
+            if (scratch.get(i) != node) {
+                scratch.get(i).invalidateItemCounts();
+            }
+        }
     }
 
-    private static boolean isOnCooldown(LogisticsNodeEntity node, ChannelData channel, int index, int tier,
-            long gameTime) {
+    private static int getConfiguredDelay(ChannelData channel, int tier) {
+        if (channel.getType() == ChannelType.ENERGY)
+            return 1;
+        return Math.max(channel.getTickDelay(), NodeUpgradeData.getMinTickDelay(tier));
+    }
+
+    // Empty sources sleep this long unless their content-change hint fires first;
+    // never longer than a fully backed-off channel would wait
+    private static long getEmptyRecheckTicks(ChannelData channel, int tier) {
+        return Math.max(getConfiguredDelay(channel, tier), (long) BACKOFF_MAX_TICKS);
+    }
+
+    private static long getNextDueTick(LogisticsNodeEntity node, ChannelData channel, int index, int tier) {
         long lastRun = node.getLastExecution(index);
-        boolean isInstantType = channel.getType() == ChannelType.ENERGY;
-        long configuredDelay = isInstantType ? 1
-                : Math.max(channel.getTickDelay(), NodeUpgradeData.getMinTickDelay(tier));
         float backoff = node.getBackoffTicks(index);
-        long effectiveDelay = Math.max(configuredDelay, (long) backoff);
+        long effectiveDelay = Math.max(getConfiguredDelay(channel, tier), (long) backoff);
 
-        return gameTime - lastRun < effectiveDelay;
+        return lastRun + effectiveDelay;
     }
 
     private static int getBatchLimit(ChannelType type, int tier) {
@@ -315,8 +686,7 @@ public class TransferEngine {
             long gameTime, int tier, int targetCount) {
         node.setLastExecution(index, gameTime);
         boolean isInstantType = channel.getType() == ChannelType.ENERGY;
-        int configuredDelay = isInstantType ? 1
-                : Math.max(channel.getTickDelay(), NodeUpgradeData.getMinTickDelay(tier));
+        int configuredDelay = getConfiguredDelay(channel, tier);
 
         if (success) {
             float curBackoff = node.getBackoffTicks(index);
@@ -342,93 +712,103 @@ public class TransferEngine {
         }
     }
 
-    private static List<ImportTarget> orderTargets(List<ImportTarget> targets, DistributionMode mode,
-            LogisticsNodeEntity sourceNode, int channelIndex) {
-        if (targets.size() <= 1)
-            return targets;
+    private static List<ImportTarget> orderTargets(NetworkExecutionContext context, int nodeIndex,
+            List<ImportTarget> cached, DistributionMode mode, LogisticsNodeEntity sourceNode, int channelIndex) {
+        if (cached.size() <= 1)
+            return cached;
 
+        // Node positions and priorities only change with the topology, so sorted
+        // orders are kept on the context; rotations go through a scratch copy
         switch (mode) {
             case PRIORITY -> {
-                targets.sort((a, b) -> Integer.compare(b.channel.getPriority(), a.channel.getPriority()));
-                return targets;
+                return context.sortedTargets(nodeIndex, channelIndex, mode, cached,
+                        (a, b) -> Integer.compare(b.channel.getPriority(), a.channel.getPriority()));
             }
             case NEAREST_FIRST -> {
                 double sx = sourceNode.getX(), sy = sourceNode.getY(), sz = sourceNode.getZ();
-                targets.sort(Comparator.comparingDouble(t -> t.node.distanceToSqr(sx, sy, sz)));
-                return targets;
+                return context.sortedTargets(nodeIndex, channelIndex, mode, cached,
+                        Comparator.comparingDouble(t -> t.node.distanceToSqr(sx, sy, sz)));
             }
             case FARTHEST_FIRST -> {
                 double sx = sourceNode.getX(), sy = sourceNode.getY(), sz = sourceNode.getZ();
-                targets.sort(
+                return context.sortedTargets(nodeIndex, channelIndex, mode, cached,
                         (a, b) -> Double.compare(b.node.distanceToSqr(sx, sy, sz), a.node.distanceToSqr(sx, sy, sz)));
-                return targets;
             }
             case ROUND_ROBIN, RECIPE_ROBIN -> {
-                int startIdx = sourceNode.getRoundRobinIndex(channelIndex) % targets.size();
+                int startIdx = sourceNode.getRoundRobinIndex(channelIndex) % cached.size();
                 if (startIdx == 0)
-                    return targets;
-                List<ImportTarget> rotated = new ArrayList<>(targets.size());
-                for (int i = 0; i < targets.size(); i++) {
-                    rotated.add(targets.get((startIdx + i) % targets.size()));
-                }
+                    return cached;
+                List<ImportTarget> rotated = context.orderBuffer(cached);
+                Collections.rotate(rotated, -startIdx);
                 return rotated;
             }
             default -> {
-                return targets;
+                return cached;
             }
         }
     }
 
     private static int transferItems(LogisticsNodeEntity sourceNode, ServerLevel sourceLevel,
             ChannelData exportChannel, int channelIndex, List<ImportTarget> targets, int batchLimit,
-            Map<UUID, Boolean> dimensionalCache) {
+            NetworkExecutionContext context) {
 
         BlockPos sourcePos = sourceNode.getAttachedPos();
         if (!sourceLevel.isLoaded(sourcePos))
             return -1;
-        IItemHandler sourceHandler = sourceLevel.getCapability(Capabilities.ItemHandler.BLOCK, sourcePos,
+        IItemHandler sourceHandler = sourceNode.getCapabilityCache().getCapability(Capabilities.ItemHandler.BLOCK,
                 exportChannel.getIoDirection());
         if (sourceHandler == null)
             return -1;
+        if (isEmpty(sourceHandler))
+            return SOURCE_EMPTY;
 
-        boolean sourceDimensional = dimensionalCache.getOrDefault(sourceNode.getUUID(), false);
+        boolean sourceDimensional = context.isDimensional(sourceNode);
         boolean anyReachable = false;
-        List<ItemTransferTarget> reachableTargets = new ArrayList<>(targets.size());
+        long gameTime = sourceLevel.getGameTime();
+        ItemBuffers buffers = context.itemBuffers();
+        buffers.clear();
+        List<ItemTransferTarget> reachableTargets = buffers.reachable;
+        IntArrayList reachableSlots = buffers.reachableSlots;
         ItemStack[] exportFilters = exportChannel.getFilterItems();
-        boolean[] sourceAllowedSlots = buildSlotAccessMask(sourceHandler, exportFilters);
+        BitSet sourceAllowedSlots = exportChannel.getFilterProgram().getSlotMask(sourceHandler.getSlots());
+        ItemCountTable sourceCounts = sourceNode.getItemCountTable(exportChannel.getIoDirection());
 
-        for (ImportTarget target : targets) {
+        for (int targetSlot = 0; targetSlot < targets.size(); targetSlot++) {
+            ImportTarget target = targets.get(targetSlot);
             if (target.node.getUUID().equals(sourceNode.getUUID()))
                 continue;
             if (!target.node.isValidNode())
                 continue;
-            if (!canReach(sourceNode, target.node, sourceDimensional, dimensionalCache))
+            if (!canReach(sourceNode, target.node, sourceDimensional, context))
                 continue;
 
             anyReachable = true;
+            if (sourceNode.isTargetSaturated(channelIndex, target.node, gameTime))
+                continue;
+            if (!context.demand().isWanting(target, gameTime))
+                continue;
             ServerLevel targetLevel = (ServerLevel) target.node.level();
             BlockPos targetPos = target.node.getAttachedPos();
             if (!targetLevel.isLoaded(targetPos))
                 continue;
 
-            IItemHandler targetHandler = targetLevel.getCapability(Capabilities.ItemHandler.BLOCK, targetPos,
-                    target.channel.getIoDirection());
+            IItemHandler targetHandler = target.node.getCapabilityCache().getCapability(
+                    Capabilities.ItemHandler.BLOCK, target.channel.getIoDirection());
             if (targetHandler == null)
                 continue;
 
-            ItemStack[] importFilters = target.channel.getFilterItems();
-            boolean[] targetAllowedSlots = buildSlotAccessMask(targetHandler, importFilters);
-            if (targetAllowedSlots != null && !hasAnyAllowedSlots(targetAllowedSlots)) {
+            BitSet targetAllowedSlots = target.channel.getFilterProgram().getSlotMask(targetHandler.getSlots());
+            if (targetAllowedSlots != null && targetAllowedSlots.isEmpty()) {
                 continue;
             }
 
-            reachableTargets.add(new ItemTransferTarget(
+            buffers.nextTarget().reset(
+                    target,
                     targetHandler,
-                    importFilters,
-                    target.channel.getFilterMode(),
-                    collectAmountConstraints(exportFilters, importFilters),
-                    FilterLogic.hasConfiguredItemNbtFilter(importFilters),
-                    targetAllowedSlots));
+                    collectAmountConstraints(exportFilters, target.channel.getFilterItems()),
+                    targetAllowedSlots,
+                    target.node.getItemCountTable(target.channel.getIoDirection()));
+            reachableSlots.add(targetSlot);
         }
         if (!anyReachable)
             return -1;
@@ -437,31 +817,62 @@ public class TransferEngine {
 
         int moved;
         if (exportChannel.getDistributionMode() == DistributionMode.RECIPE_ROBIN) {
-            moved = executeMoveRecipeWithCursor(sourceNode, channelIndex, sourceHandler,
-                    reachableTargets, batchLimit, exportFilters, exportChannel.getFilterMode(),
-                    sourceAllowedSlots, sourceLevel.registryAccess());
+            moved = executeMoveRecipeWithCursor(sourceNode, channelIndex, sourceHandler, sourceCounts, gameTime,
+                    buffers, batchLimit, exportFilters, exportChannel.getFilterProgram(),
+                    sourceAllowedSlots, context.demand(), sourceLevel.registryAccess());
         } else {
-            moved = executeMove(sourceHandler, reachableTargets, batchLimit,
-                    exportFilters, exportChannel.getFilterMode(),
-                    sourceAllowedSlots,
+            int[] quotas = exportChannel.getDistributionMode() == DistributionMode.WEIGHTED
+                    ? weightedQuotas(sourceNode, channelIndex, targets, reachableSlots, batchLimit,
+                            buffers.quotas(reachableSlots.size()))
+                    : null;
+            moved = executeMove(sourceHandler, sourceCounts, gameTime, buffers, batchLimit,
+                    exportFilters, exportChannel.getFilterProgram(),
+                    sourceAllowedSlots, quotas, context.itemRoutes(channelIndex), context.demand(),
                     sourceLevel.registryAccess());
         }
+
+        // Skip targets with no free or stackable slot until they change or the retry passes
+        for (int i = 0; i < reachableTargets.size(); i++) {
+            ItemTransferTarget target = reachableTargets.get(i);
+            if (target.slotIndex.isFull()) {
+                sourceNode.markTargetSaturated(channelIndex, target.origin.node().getUUID(), gameTime);
+            }
+        }
+        if (moved > 0) {
+            sourceNode.markContentChanged(gameTime);
+            invalidateSharedCounts(sourceNode, sourceCounts, buffers.sharing);
+            for (int i = 0; i < reachableTargets.size(); i++) {
+                ItemTransferTarget target = reachableTargets.get(i);
+                if (target.slotIndex.hasReceived()) {
+                    LogisticsNodeEntity receiver = target.origin.node();
+                    receiver.markContentChanged(gameTime);
+                    invalidateSharedCounts(receiver, target.counts, buffers.sharing);
+                    // Wake exporters sleeping on the side that just received
+                    Direction side = target.origin.channel().getIoDirection();
+                    if (receiver.wakeChannels(ChannelType.ITEM, side) && receiver.getNetworkId() != null) {
+                        NetworkRegistry.get(sourceLevel).markNetworkDirty(receiver.getNetworkId());
+                    }
+                }
+            }
+        }
         return moved > 0 ? 1 : 0;
     }
 
     private static int transferFluids(LogisticsNodeEntity sourceNode, ServerLevel sourceLevel,
             ChannelData exportChannel, List<ImportTarget> targets, int batchLimitMb,
-            Map<UUID, Boolean> dimensionalCache) {
+            NetworkExecutionContext context) {
 
         BlockPos sourcePos = sourceNode.getAttachedPos();
         if (!sourceLevel.isLoaded(sourcePos))
             return -1;
-        IFluidHandler sourceHandler = sourceLevel.getCapability(Capabilities.FluidHandler.BLOCK, sourcePos,
-                exportChannel.getIoDirection());
+        IFluidHandler sourceHandler = sourceNode.getCapabilityCache().getCapability(
+                Capabilities.FluidHandler.BLOCK, exportChannel.getIoDirection());
         if (sourceHandler == null)
             return -1;
+        if (isEmpty(sourceHandler))
+            return SOURCE_EMPTY;
 
-        boolean sourceDimensional = dimensionalCache.getOrDefault(sourceNode.getUUID(), false);
+        boolean sourceDimensional = context.isDimensional(sourceNode);
         boolean anyReachable = false;
 
         for (ImportTarget target : targets) {
@@ -469,7 +880,7 @@ public class TransferEngine {
                 continue;
             if (!target.node.isValidNode())
                 continue;
-            if (!canReach(sourceNode, target.node, sourceDimensional, dimensionalCache))
+            if (!canReach(sourceNode, target.node, sourceDimensional, context))
                 continue;
 
             anyReachable = true;
@@ -478,14 +889,14 @@ public class TransferEngine {
             if (!targetLevel.isLoaded(targetPos))
                 continue;
 
-            IFluidHandler targetHandler = targetLevel.getCapability(Capabilities.FluidHandler.BLOCK, targetPos,
-                    target.channel.getIoDirection());
+            IFluidHandler targetHandler = target.node.getCapabilityCache().getCapability(
+                    Capabilities.FluidHandler.BLOCK, target.channel.getIoDirection());
             if (targetHandler == null)
                 continue;
 
             if (executeFluidMove(sourceHandler, targetHandler, batchLimitMb,
-                    exportChannel.getFilterItems(), exportChannel.getFilterMode(),
-                    target.channel.getFilterItems(), target.channel.getFilterMode(),
+                    exportChannel.getFilterItems(), exportChannel.getFilterProgram(),
+                    target.channel.getFilterItems(), target.channel.getFilterProgram(),
                     sourceLevel.registryAccess())) {
                 return 1;
             }
@@ -493,56 +904,25 @@ public class TransferEngine {
         return anyReachable ? 0 : -1;
     }
 
-    private static int transferEnergy(LogisticsNodeEntity sourceNode, ServerLevel sourceLevel,
-            ChannelData exportChannel, List<ImportTarget> targets, int batchLimitRF,
-            Map<UUID, Boolean> dimensionalCache) {
+    private static boolean queueEnergyExport(NetworkExecutionContext context, int nodeIndex,
+            LogisticsNodeEntity sourceNode, ServerLevel sourceLevel, ChannelData exportChannel, int channelIndex,
+            List<ImportTarget> targets, int batchLimitRF) {
 
         BlockPos sourcePos = sourceNode.getAttachedPos();
         if (!sourceLevel.isLoaded(sourcePos))
-            return -1;
-        IEnergyStorage sourceHandler = sourceLevel.getCapability(Capabilities.EnergyStorage.BLOCK, sourcePos,
-                exportChannel.getIoDirection());
+            return false;
+        IEnergyStorage sourceHandler = sourceNode.getCapabilityCache().getCapability(
+                Capabilities.EnergyStorage.BLOCK, exportChannel.getIoDirection());
         if (sourceHandler == null || !sourceHandler.canExtract())
-            return -1;
-
-        boolean sourceDimensional = dimensionalCache.getOrDefault(sourceNode.getUUID(), false);
-        int remaining = batchLimitRF;
-        boolean anyReachable = false;
-
-        for (ImportTarget target : targets) {
-            if (remaining <= 0)
-                break;
-            if (target.node.getUUID().equals(sourceNode.getUUID()))
-                continue;
-            if (!target.node.isValidNode())
-                continue;
-            if (!canReach(sourceNode, target.node, sourceDimensional, dimensionalCache))
-                continue;
-
-            anyReachable = true;
-            ServerLevel targetLevel = (ServerLevel) target.node.level();
-            BlockPos targetPos = target.node.getAttachedPos();
-            if (!targetLevel.isLoaded(targetPos))
-                continue;
-
-            IEnergyStorage targetHandler = targetLevel.getCapability(Capabilities.EnergyStorage.BLOCK, targetPos,
-                    target.channel.getIoDirection());
-            if (targetHandler == null || !targetHandler.canReceive())
-                continue;
-
-            int moved = executeEnergyMove(sourceHandler, targetHandler, remaining);
-            if (moved > 0)
-                remaining -= moved;
-        }
+            return false;
 
-        if (!anyReachable)
-            return -1;
-        return remaining < batchLimitRF ? 1 : 0;
+        context.energyBalancer().add(nodeIndex, channelIndex, exportChannel, sourceHandler, batchLimitRF, targets);
+        return true;
     }
 
     private static int transferChemicals(LogisticsNodeEntity sourceNode, ServerLevel sourceLevel,
             ChannelData exportChannel, List<ImportTarget> targets, int batchLimit,
-            Map<UUID, Boolean> dimensionalCache) {
+            NetworkExecutionContext context) {
 
         if (!MekanismCompat.isLoaded()) {
             if (Config.debugMode)
@@ -560,7 +940,7 @@ public class TransferEngine {
         if (!sourceLevel.isLoaded(sourcePos))
             return -1;
 
-        boolean sourceDimensional = dimensionalCache.getOrDefault(sourceNode.getUUID(), false);
+        boolean sourceDimensional = context.isDimensional(sourceNode);
         boolean anyReachable = false;
 
         for (ImportTarget target : targets) {
@@ -568,7 +948,7 @@ public class TransferEngine {
                 continue;
             if (!target.node().isValidNode())
                 continue;
-            if (!canReach(sourceNode, target.node(), sourceDimensional, dimensionalCache))
+            if (!canReach(sourceNode, target.node(), sourceDimensional, context))
                 continue;
 
             anyReachable = true;
@@ -578,11 +958,10 @@ public class TransferEngine {
                 continue;
 
             long moved = ChemicalTransferHelper.transferBetween(
-                    sourceLevel, sourcePos, exportChannel.getIoDirection(),
-                    targetLevel, targetPos, target.channel().getIoDirection(),
+                    sourceNode, exportChannel.getIoDirection(),
+                    target.node(), target.channel().getIoDirection(),
                     batchLimit,
-                    exportChannel.getFilterItems(), exportChannel.getFilterMode(),
-                    target.channel().getFilterItems(), target.channel().getFilterMode());
+                    exportChannel.getFilterProgram(), target.channel().getFilterProgram());
             if (Config.debugMode)
                 LOGGER.debug("[Chemical] Transfer {} -> {}: moved={}, batch={}",
                         sourcePos, targetPos, moved, batchLimit);
@@ -597,7 +976,7 @@ public class TransferEngine {
 
     private static int transferSource(LogisticsNodeEntity sourceNode, ServerLevel sourceLevel,
             ChannelData exportChannel, List<ImportTarget> targets, int batchLimit,
-            Map<UUID, Boolean> dimensionalCache) {
+            NetworkExecutionContext context) {
 
         if (!ArsCompat.isLoaded()) {
             if (Config.debugMode)
@@ -615,7 +994,7 @@ public class TransferEngine {
         if (!sourceLevel.isLoaded(sourcePos))
             return -1;
 
-        boolean sourceDimensional = dimensionalCache.getOrDefault(sourceNode.getUUID(), false);
+        boolean sourceDimensional = context.isDimensional(sourceNode);
         int remaining = batchLimit;
         boolean anyReachable = false;
 
@@ -626,7 +1005,7 @@ public class TransferEngine {
                 continue;
             if (!target.node().isValidNode())
                 continue;
-            if (!canReach(sourceNode, target.node(), sourceDimensional, dimensionalCache))
+            if (!canReach(sourceNode, target.node(), sourceDimensional, context))
                 continue;
 
             anyReachable = true;
@@ -649,55 +1028,141 @@ public class TransferEngine {
         return remaining < batchLimit ? 1 : 0;
     }
 
-    private static boolean canReach(LogisticsNodeEntity source, LogisticsNodeEntity target, boolean sourceDim,
-            Map<UUID, Boolean> dimCache) {
+    private static boolean isEmpty(IItemHandler handler) {
+        for (int slot = 0; slot < handler.getSlots(); slot++) {
+            if (!handler.getStackInSlot(slot).isEmpty())
+                return false;
+        }
+        return true;
+    }
+
+    private static boolean isEmpty(IFluidHandler handler) {
+        for (int tank = 0; tank < handler.getTanks(); tank++) {
+            if (!handler.getFluidInTank(tank).isEmpty())
+                return false;
+        }
+        return true;
+    }
+
+    static boolean canReach(LogisticsNodeEntity source, LogisticsNodeEntity target, boolean sourceDim,
+            NetworkExecutionContext context) {
         if (source.level().dimension().equals(target.level().dimension()))
             return true;
-        return sourceDim && dimCache.getOrDefault(target.getUUID(), false);
+        return sourceDim && context.isDimensional(target);
     }
 
-    private static int executeMove(IItemHandler source, List<ItemTransferTarget> targets, int limit,
-            ItemStack[] exportFilters, FilterMode exportFilterMode,
-            boolean[] sourceAllowedSlots,
-            HolderLookup.Provider provider) {
+    /**
+     * Splits a batch across the reachable targets of a WEIGHTED channel in one
+     * pass. Each import channel's priority is its weight (at least 1). Whole
+     * shares are handed out directly; the few units left by rounding go through
+     * smooth weighted round robin, whose state is kept on the source node so
+     * small batches still even out over successive firings.
+     */
+    private static int[] weightedQuotas(LogisticsNodeEntity sourceNode, int channelIndex, List<ImportTarget> targets,
+            IntArrayList reachableSlots, int limit, int[] quotas) {
+        long totalWeight = 0;
+        for (int i = 0; i < reachableSlots.size(); i++) {
+            totalWeight += getWeight(targets.get(reachableSlots.getInt(i)));
+        }
+        if (totalWeight <= 0)
+            return quotas;
 
+        int leftover = limit;
+        for (int i = 0; i < reachableSlots.size(); i++) {
+            quotas[i] = (int) ((long) limit * getWeight(targets.get(reachableSlots.getInt(i))) / totalWeight);
+            leftover -= quotas[i];
+        }
+
+        Object2LongOpenHashMap<UUID> credits = sourceNode.getWeightCredits(channelIndex);
+        if (credits.size() > targets.size()) {
+            // A target left the channel; start the remaining ones afresh
+            credits.clear();
+        }
+        for (; leftover > 0; leftover--) {
+            int best = 0;
+            long bestCredit = Long.MIN_VALUE;
+            for (int i = 0; i < reachableSlots.size(); i++) {
+                ImportTarget target = targets.get(reachableSlots.getInt(i));
+                int weight = getWeight(target);
+                long credit = credits.addTo(target.node.getUUID(), weight) + weight;
+                if (credit > bestCredit) {
+                    best = i;
+                    bestCredit = credit;
+                }
+            }
+            quotas[best]++;
+            credits.addTo(targets.get(reachableSlots.getInt(best)).node.getUUID(), -totalWeight);
+        }
+        return quotas;
+    }
+
+    static int getWeight(ImportTarget target) {
+        return Math.max(1, target.channel.getPriority());
+    }
+
+    private static int executeMove(IItemHandler source, ItemCountTable sourceCounts, long gameTime,
+            ItemBuffers buffers, int limit,
+            ItemStack[] exportFilters, FilterProgram exportProgram,
+            @Nullable BitSet sourceAllowedSlots, @Nullable int[] quotas, @Nullable RoutingIndex routes,
+            @Nullable DemandIndex demand, HolderLookup.Provider provider) {
+
+        List<ItemTransferTarget> targets = buffers.reachable;
         int remaining = limit;
-        FilterItemData.ReadCache filterReadCache = FilterItemData.createReadCache();
-        boolean hasExportNbtFilter = FilterLogic.hasConfiguredItemNbtFilter(exportFilters);
-        boolean hasAnyImportNbtFilter = false;
-        for (ItemTransferTarget target : targets) {
-            if (target.hasItemNbtFilter()) {
-                hasAnyImportNbtFilter = true;
-                break;
+        // Part of the batch kept back when weighted shares spill over
+        int held = 0;
+
+        SourceSnapshot snapshot = buffers.snapshot;
+        snapshot.capture(source, sourceAllowedSlots, exportProgram, provider);
+        if (snapshot.isEmpty())
+            return 0;
+        for (int i = 0; i < targets.size(); i++) {
+            ItemTransferTarget target = targets.get(i);
+            target.matches = snapshot.resetMatches(target.matches);
+        }
+        if (routes != null) {
+            snapshot.applyRoutes(routes, targets);
+        }
+        if (demand != null) {
+            for (int i = 0; i < targets.size(); i++) {
+                ItemTransferTarget target = targets.get(i);
+                if (demand.isRequester(target.origin)) {
+                    snapshot.applyDemand(demand, target.origin, target.matches, gameTime);
+                }
             }
         }
-        boolean hasNbtFilter = hasExportNbtFilter || hasAnyImportNbtFilter;
 
         // Build amount constraint caches to avoid repeated full-inventory scans
         boolean anyAmountConstraints = false;
         for (ItemTransferTarget t : targets) {
-            if (t.constraints().hasExportThreshold || t.constraints().hasImportThreshold
-                    || t.constraints().hasPerEntryAmounts) {
+            if (t.constraints.hasExportThreshold || t.constraints.hasImportThreshold
+                    || t.constraints.hasPerEntryAmounts) {
                 anyAmountConstraints = true;
                 break;
             }
         }
-        Map<Item, Integer> sourceItemCounts = anyAmountConstraints ? buildItemCountCache(source) : null;
-        List<Map<Item, Integer>> targetItemCounts = null;
+        // Per-tick tables, rescanned only when stale; moves below are applied as deltas
+        ItemCountTable sourceItemCounts = null;
         if (anyAmountConstraints) {
-            targetItemCounts = new ArrayList<>(targets.size());
-            for (ItemTransferTarget t : targets) {
-                targetItemCounts.add(
-                        (t.constraints().hasImportThreshold || t.constraints().hasPerEntryAmounts)
-                                ? buildItemCountCache(t.handler())
-                                : null);
+            sourceCounts.refresh(source, gameTime);
+            sourceItemCounts = sourceCounts;
+            for (int i = 0; i < targets.size(); i++) {
+                ItemTransferTarget t = targets.get(i);
+                if (t.constraints.hasImportThreshold || t.constraints.hasPerEntryAmounts) {
+                    t.counts.refresh(t.handler, gameTime);
+                }
             }
         }
 
         boolean movedAny;
-        boolean[] openTargets = new boolean[targets.size()];
-        Arrays.fill(openTargets, true);
-        int openTargetCount = targets.size();
+        boolean[] openTargets = buffers.openTargets(targets.size());
+        int openTargetCount = 0;
+        for (int i = 0; i < targets.size(); i++) {
+            // Routed or requesting targets that want none of the source's items are done already
+            openTargets[i] = snapshot.mayMatch(targets.get(i).matches);
+            if (openTargets[i]) {
+                openTargetCount++;
+            }
+        }
 
         while (remaining > 0 && openTargetCount > 0) {
             movedAny = false;
@@ -706,56 +1171,64 @@ public class TransferEngine {
                 if (!openTargets[targetIndex]) {
                     continue;
                 }
+                if (quotas != null && quotas[targetIndex] <= 0) {
+                    continue;
+                }
 
                 ItemTransferTarget target = targets.get(targetIndex);
+                ChannelData importChannel = target.origin.channel();
                 boolean movedForTarget = false;
 
-                for (int slot = 0; slot < source.getSlots() && remaining > 0; slot++) {
-                    if (sourceAllowedSlots != null
-                            && (slot >= sourceAllowedSlots.length || !sourceAllowedSlots[slot])) {
+                // Only slots whose item type passes both filters are simulated
+                for (int i = 0; i < snapshot.exportableCount; i++) {
+                    if (remaining <= 0)
+                        break;
+                    int slot = snapshot.exportableSlots[i];
+                    if (!snapshot.targetAccepts(target.matches, slot, importChannel.getFilterProgram(), provider)) {
                         continue;
                     }
 
-                    ItemStack extracted = source.extractItem(slot, remaining, true);
-                    if (extracted.isEmpty() || extracted.is(ModTags.RESOURCE_BLACKLIST_ITEMS)) {
+                    int cap = quotas != null ? Math.min(remaining, quotas[targetIndex]) : remaining;
+                    ItemStack extracted = source.extractItem(slot, cap, true);
+                    if (extracted.isEmpty()) {
                         continue;
                     }
 
-                    CompoundTag candidateComponents = (provider != null && hasNbtFilter)
-                            ? NbtFilterData.getSerializedComponents(extracted, provider)
-                            : null;
-
-                    if (provider != null) {
-                        if (!FilterLogic.matchesItem(exportFilters, exportFilterMode, extracted, provider,
-                                candidateComponents, filterReadCache)) {
+                    // Slot no longer holds what the snapshot saw; check the stack itself
+                    if (!snapshot.isSnapshotStack(slot, extracted)) {
+                        if (ResourceBlacklist.isBlacklisted(extracted))
+                            continue;
+                        if (provider != null && (!exportProgram.matchesItem(extracted, provider, null)
+                                || !importChannel.getFilterProgram().matchesItem(extracted, provider, null))) {
                             continue;
                         }
                     }
 
-                    if (provider != null && !FilterLogic.matchesItem(target.importFilters(), target.importFilterMode(),
-                            extracted, provider, candidateComponents, filterReadCache)) {
-                        continue;
-                    }
-
                     int allowedByAmount;
                     if (!anyAmountConstraints
-                            || (!target.constraints().hasExportThreshold && !target.constraints().hasImportThreshold
-                                    && !target.constraints().hasPerEntryAmounts)) {
+                            || (!target.constraints.hasExportThreshold && !target.constraints.hasImportThreshold
+                                    && !target.constraints.hasPerEntryAmounts)) {
                         allowedByAmount = extracted.getCount(); // extracted.getCount() is bounded by 'remaining'
                                                                 // already
                     } else {
-                        allowedByAmount = getAllowedTransferCached(extracted, target.constraints(),
-                                sourceItemCounts, targetItemCounts.get(targetIndex));
-                        if (target.constraints().hasPerEntryAmounts && provider != null) {
+                        // Target counts are only read under the constraints that refreshed them
+                        allowedByAmount = getAllowedTransferCached(extracted, target.constraints,
+                                sourceItemCounts, target.counts);
+                        if (target.constraints.hasPerEntryAmounts && provider != null) {
                             int perEntry = getPerEntryItemAmountLimit(extracted, exportFilters,
-                                    target.importFilters(), sourceItemCounts,
-                                    targetItemCounts.get(targetIndex), provider, candidateComponents,
-                                    filterReadCache);
+                                    importChannel.getFilterItems(), sourceItemCounts,
+                                    target.counts, provider, null,
+                                    buffers.filterReadCache);
                             if (perEntry >= 0) {
                                 allowedByAmount = Math.min(allowedByAmount, perEntry);
                             }
                         }
                     }
+                    if (demand != null) {
+                        // Requesters take no more than they are short of
+                        allowedByAmount = Math.min(allowedByAmount,
+                                demand.shortfall(target.origin, extracted.getItem(), gameTime));
+                    }
                     if (allowedByAmount <= 0) {
                         continue;
                     }
@@ -767,8 +1240,7 @@ public class TransferEngine {
 
                     // Simulate insertion first to determine how many the target can actually accept
                     ItemStack simulatedInsert = extracted.copyWithCount(allowed);
-                    ItemStack simRemainder = insertItemWithAllowedSlots(target.handler(), simulatedInsert, true,
-                            target.allowedSlots());
+                    ItemStack simRemainder = target.slotIndex.insert(simulatedInsert, true);
                     int acceptableCount = allowed - simRemainder.getCount();
                     if (acceptableCount <= 0) {
                         continue;
@@ -779,8 +1251,7 @@ public class TransferEngine {
                         continue;
                     }
 
-                    ItemStack uninserted = insertItemWithAllowedSlots(target.handler(), toMove, false,
-                            target.allowedSlots());
+                    ItemStack uninserted = target.slotIndex.insert(toMove, false);
                     int moved = toMove.getCount() - uninserted.getCount();
 
                     if (!uninserted.isEmpty()) {
@@ -796,7 +1267,9 @@ public class TransferEngine {
                                         "Forcing back into target as last resort.",
                                         stillLeft, source.getClass().getSimpleName());
                                 // Last resort: we cannot void items. Re-insert into target to undo.
-                                insertItemWithAllowedSlots(target.handler(), stillLeft, false, null);
+                                ItemHandlerHelper.insertItemStacked(target.handler, stillLeft, false);
+                                target.slotIndex.invalidate();
+                                target.counts.invalidate();
                             }
                         }
                     }
@@ -805,18 +1278,15 @@ public class TransferEngine {
                         movedAny = true;
                         movedForTarget = true;
                         remaining -= moved;
-
-                        if (anyAmountConstraints) {
-                            Item movedItem = extracted.getItem();
-                            if (sourceItemCounts != null) {
-                                sourceItemCounts.merge(movedItem, -moved, Integer::sum);
-                            }
-                            Map<Item, Integer> tgtCache = targetItemCounts.get(targetIndex);
-                            if (tgtCache != null) {
-                                tgtCache.merge(movedItem, moved, Integer::sum);
-                            }
+                        if (quotas != null) {
+                            quotas[targetIndex] -= moved;
                         }
 
+                        // Tables are shared by every exporter this tick, so every move lands in them
+                        Item movedItem = extracted.getItem();
+                        sourceCounts.add(movedItem, -moved);
+                        target.counts.add(movedItem, moved);
+
                         // We successfully transferred an item to this target.
                         // Break out of the slot loop to allow the next target in the Round Robin queue
                         // to get a turn.
@@ -831,23 +1301,40 @@ public class TransferEngine {
             }
 
             if (!movedAny) {
-                break;
+                if (quotas == null) {
+                    break;
+                }
+                // Shares of targets that could not take them go to targets that still can
+                int unfilled = 0;
+                for (int i = 0; i < targets.size(); i++) {
+                    if (!openTargets[i]) {
+                        unfilled += quotas[i];
+                    }
+                }
+                quotas = null;
+                held = Math.max(0, remaining - unfilled);
+                remaining -= held;
             }
         }
-        return limit - remaining;
+        return limit - remaining - held;
     }
 
     private static RecipeCursorResult executeMoveRecipeToTargetWithCursor(IItemHandler source, ItemTransferTarget target,
-            int limit, List<RecipeEntry> recipe, boolean[] sourceAllowedSlots,
-            HolderLookup.Provider provider, @Nullable FilterItemData.ReadCache filterReadCache,
-            int startEntryIndex, int startEntryRemaining) {
+            int limit, List<FilterProgram.RecipeEntry> recipe, SourceSnapshot snapshot,
+            @Nullable DemandIndex demand, long gameTime,
+            HolderLookup.Provider provider, int startEntryIndex, int startEntryRemaining) {
 
         int totalMoved = 0;
         int currentEntryIdx = startEntryIndex;
         int currentRemaining = startEntryRemaining;
+        FilterProgram importProgram = target.origin.channel().getFilterProgram();
+        target.matches = snapshot.resetMatches(target.matches);
+        if (demand != null && demand.isRequester(target.origin)) {
+            snapshot.applyDemand(demand, target.origin, target.matches, gameTime);
+        }
 
         while (currentEntryIdx < recipe.size()) {
-            RecipeEntry entry = recipe.get(currentEntryIdx);
+            FilterProgram.RecipeEntry entry = recipe.get(currentEntryIdx);
 
             int wantToMove = Math.min(currentRemaining, limit - totalMoved);
             if (wantToMove <= 0)
@@ -855,32 +1342,32 @@ public class TransferEngine {
 
             int movedForEntry = 0;
 
-            for (int slot = 0; slot < source.getSlots() && movedForEntry < wantToMove; slot++) {
-                if (sourceAllowedSlots != null
-                        && (slot >= sourceAllowedSlots.length || !sourceAllowedSlots[slot])) {
+            IntArrayList entrySlots = snapshot.slotsMatching(currentEntryIdx, entry);
+            for (int i = 0; i < entrySlots.size(); i++) {
+                if (movedForEntry >= wantToMove)
+                    break;
+                int slot = entrySlots.getInt(i);
+                if (!snapshot.targetAccepts(target.matches, slot, importProgram, provider)) {
                     continue;
                 }
 
                 int needed = wantToMove - movedForEntry;
                 ItemStack extracted = source.extractItem(slot, needed, true);
-                if (extracted.isEmpty() || extracted.is(ModTags.RESOURCE_BLACKLIST_ITEMS)) {
+                if (extracted.isEmpty()) {
                     continue;
                 }
 
-                if (!matchesRecipeEntry(entry, extracted)) {
-                    continue;
-                }
-
-                if (provider != null && !FilterLogic.matchesItem(target.importFilters(),
-                        target.importFilterMode(), extracted, provider, null, filterReadCache)) {
-                    continue;
+                if (!snapshot.isSnapshotStack(slot, extracted)) {
+                    if (ResourceBlacklist.isBlacklisted(extracted) || !entry.matches(extracted))
+                        continue;
+                    if (provider != null && !importProgram.matchesItem(extracted, provider, null))
+                        continue;
                 }
 
                 int toExtract = Math.min(extracted.getCount(), needed);
 
                 ItemStack simulatedInsert = extracted.copyWithCount(toExtract);
-                ItemStack simRemainder = insertItemWithAllowedSlots(
-                        target.handler(), simulatedInsert, true, target.allowedSlots());
+                ItemStack simRemainder = target.slotIndex.insert(simulatedInsert, true);
                 int acceptableCount = toExtract - simRemainder.getCount();
                 if (acceptableCount <= 0)
                     continue;
@@ -889,8 +1376,7 @@ public class TransferEngine {
                 if (toMove.isEmpty())
                     continue;
 
-                ItemStack uninserted = insertItemWithAllowedSlots(
-                        target.handler(), toMove, false, target.allowedSlots());
+                ItemStack uninserted = target.slotIndex.insert(toMove, false);
                 int moved = toMove.getCount() - uninserted.getCount();
 
                 if (!uninserted.isEmpty()) {
@@ -904,7 +1390,8 @@ public class TransferEngine {
                                     "ITEM VOIDING PREVENTED in recipe robin: Could not return {} to source handler {}. "
                                             + "Forcing back into target as last resort.",
                                     stillLeft, source.getClass().getSimpleName());
-                            insertItemWithAllowedSlots(target.handler(), stillLeft, false, null);
+                            ItemHandlerHelper.insertItemStacked(target.handler, stillLeft, false);
+                            target.slotIndex.invalidate();
                         }
                     }
                 }
@@ -936,20 +1423,28 @@ public class TransferEngine {
 
     private static int executeMoveRecipeWithCursor(
             LogisticsNodeEntity sourceNode, int channelIndex,
-            IItemHandler source, List<ItemTransferTarget> targets, int limit,
-            ItemStack[] exportFilters, FilterMode exportFilterMode,
-            boolean[] sourceAllowedSlots, HolderLookup.Provider provider) {
+            IItemHandler source, ItemCountTable sourceCounts, long gameTime,
+            ItemBuffers buffers, int limit,
+            ItemStack[] exportFilters, FilterProgram exportProgram,
+            @Nullable BitSet sourceAllowedSlots, @Nullable DemandIndex demand, HolderLookup.Provider provider) {
 
-        List<RecipeEntry> recipe = buildRecipe(exportFilters, provider);
+        List<FilterProgram.RecipeEntry> recipe = exportProgram.getRecipePlan(provider);
 
         if (recipe.isEmpty()) {
-            return executeMove(source, targets, limit, exportFilters, exportFilterMode,
-                    sourceAllowedSlots, provider);
+            return executeMove(source, sourceCounts, gameTime, buffers, limit, exportFilters, exportProgram,
+                    sourceAllowedSlots, null, null, demand, provider);
         }
 
+        List<ItemTransferTarget> targets = buffers.reachable;
         if (targets.isEmpty())
             return 0;
 
+        // Recipe moves don't track per-item deltas; rescan the tables next time
+        sourceCounts.invalidate();
+        for (ItemTransferTarget target : targets) {
+            target.counts.invalidate();
+        }
+
         int cursorEntry = sourceNode.getRecipeCursorEntry(channelIndex);
         int cursorRemaining = sourceNode.getRecipeCursorRemaining(channelIndex);
 
@@ -964,15 +1459,17 @@ public class TransferEngine {
         int totalMoved = 0;
         int remaining = limit;
         int targetsCompleted = 0;
-        FilterItemData.ReadCache filterReadCache = FilterItemData.createReadCache();
+
+        // Recipe entries act as the export filter here, so only the blacklist applies up front
+        SourceSnapshot snapshot = buffers.snapshot;
+        snapshot.capture(source, sourceAllowedSlots, FilterProgram.EMPTY, provider);
 
         for (int t = 0; t < targets.size() && remaining > 0; t++) {
             ItemTransferTarget target = targets.get(t);
 
             RecipeCursorResult result = executeMoveRecipeToTargetWithCursor(
-                    source, target, remaining, recipe,
-                    sourceAllowedSlots, provider, filterReadCache,
-                    cursorEntry, cursorRemaining);
+                    source, target, remaining, recipe, snapshot,
+                    demand, gameTime, provider, cursorEntry, cursorRemaining);
 
             totalMoved += result.moved();
             remaining -= result.moved();
@@ -997,112 +1494,9 @@ public class TransferEngine {
         return totalMoved;
     }
 
-    private static ItemStack insertItemWithAllowedSlots(IItemHandler handler, ItemStack stack, boolean simulate,
-            boolean[] allowedSlots) {
-        if (stack.isEmpty()) {
-            return ItemStack.EMPTY;
-        }
-        if (allowedSlots == null) {
-            return ItemHandlerHelper.insertItemStacked(handler, stack, simulate);
-        }
-        if (handler instanceof IItemHandlerModifiable modifiable) {
-            return insertItemStrictAllowedSlots(modifiable, stack, simulate, allowedSlots);
-        }
-
-        ItemStack remaining = stack.copy();
-
-        for (int slot = 0; slot < handler.getSlots() && !remaining.isEmpty(); slot++) {
-            if (slot >= allowedSlots.length || !allowedSlots[slot]) {
-                continue;
-            }
-            ItemStack slotStack = handler.getStackInSlot(slot);
-            if (slotStack.isEmpty()) {
-                continue;
-            }
-            if (!ItemStack.isSameItemSameComponents(slotStack, remaining)) {
-                continue;
-            }
-            remaining = handler.insertItem(slot, remaining, simulate);
-        }
-
-        for (int slot = 0; slot < handler.getSlots() && !remaining.isEmpty(); slot++) {
-            if (slot >= allowedSlots.length || !allowedSlots[slot]) {
-                continue;
-            }
-            ItemStack slotStack = handler.getStackInSlot(slot);
-            if (!slotStack.isEmpty()) {
-                continue;
-            }
-            remaining = handler.insertItem(slot, remaining, simulate);
-        }
-
-        return remaining;
-    }
-
-    private static ItemStack insertItemStrictAllowedSlots(IItemHandlerModifiable handler, ItemStack stack,
-            boolean simulate, boolean[] allowedSlots) {
-        ItemStack remaining = stack.copy();
-
-        for (int pass = 0; pass < 2 && !remaining.isEmpty(); pass++) {
-            boolean mergePass = pass == 0;
-
-            for (int slot = 0; slot < handler.getSlots() && !remaining.isEmpty(); slot++) {
-                if (slot >= allowedSlots.length || !allowedSlots[slot]) {
-                    continue;
-                }
-
-                ItemStack slotStack = handler.getStackInSlot(slot);
-                boolean slotEmpty = slotStack.isEmpty();
-
-                if (mergePass && slotEmpty) {
-                    continue;
-                }
-                if (!mergePass && !slotEmpty) {
-                    continue;
-                }
-                if (!slotEmpty && !ItemStack.isSameItemSameComponents(slotStack, remaining)) {
-                    continue;
-                }
-                if (!handler.isItemValid(slot, remaining)) {
-                    continue;
-                }
-
-                int slotLimit = Math.min(handler.getSlotLimit(slot), remaining.getMaxStackSize());
-                if (!slotEmpty) {
-                    slotLimit = Math.min(slotLimit, slotStack.getMaxStackSize());
-                }
-
-                int currentCount = slotEmpty ? 0 : slotStack.getCount();
-                int space = slotLimit - currentCount;
-                if (space <= 0) {
-                    continue;
-                }
-
-                int toInsert = Math.min(space, remaining.getCount());
-                if (toInsert <= 0) {
-                    continue;
-                }
-
-                if (!simulate) {
-                    if (slotEmpty) {
-                        handler.setStackInSlot(slot, remaining.copyWithCount(toInsert));
-                    } else {
-                        ItemStack updated = slotStack.copy();
-                        updated.grow(toInsert);
-                        handler.setStackInSlot(slot, updated);
-                    }
-                }
-
-                remaining.shrink(toInsert);
-            }
-        }
-
-        return remaining;
-    }
-
     private static boolean executeFluidMove(IFluidHandler source, IFluidHandler target, int limitMb,
-            ItemStack[] exportFilters, FilterMode exportFilterMode,
-            ItemStack[] importFilters, FilterMode importFilterMode,
+            ItemStack[] exportFilters, FilterProgram exportProgram,
+            ItemStack[] importFilters, FilterProgram importProgram,
             HolderLookup.Provider provider) {
 
         int remaining = limitMb;
@@ -1113,7 +1507,7 @@ public class TransferEngine {
             FluidStack tankFluid = source.getFluidInTank(tank);
             if (tankFluid.isEmpty())
                 continue;
-            if (tankFluid.getFluid().builtInRegistryHolder().is(ModTags.RESOURCE_BLACKLIST_FLUIDS))
+            if (ResourceBlacklist.isBlacklisted(tankFluid))
                 continue;
 
             int requestFromTank = Math.min(remaining, tankFluid.getAmount());
@@ -1123,9 +1517,9 @@ public class TransferEngine {
                 continue;
 
             if (provider != null) {
-                if (!FilterLogic.matchesFluid(exportFilters, exportFilterMode, simulated, provider))
+                if (!exportProgram.matchesFluid(simulated, provider))
                     continue;
-                if (!FilterLogic.matchesFluid(importFilters, importFilterMode, simulated, provider))
+                if (!importProgram.matchesFluid(simulated, provider))
                     continue;
             }
 
@@ -1167,32 +1561,6 @@ public class TransferEngine {
         return movedAny;
     }
 
-    private static int executeEnergyMove(IEnergyStorage source, IEnergyStorage target, int limitRF) {
-        int extracted = source.extractEnergy(limitRF, true);
-        if (extracted <= 0)
-            return 0;
-
-        int accepted = target.receiveEnergy(extracted, true);
-        if (accepted <= 0)
-            return 0;
-
-        int toMove = Math.min(extracted, accepted);
-        int actuallyExtracted = source.extractEnergy(toMove, false);
-        if (actuallyExtracted <= 0)
-            return 0;
-
-        return target.receiveEnergy(actuallyExtracted, false);
-    }
-
-    private static LogisticsNodeEntity findNode(MinecraftServer server, UUID nodeId) {
-        for (ServerLevel level : server.getAllLevels()) {
-            Entity entity = level.getEntity(nodeId);
-            if (entity instanceof LogisticsNodeEntity node)
-                return node;
-        }
-        return null;
-    }
-
     private static boolean isRedstoneActive(RedstoneMode mode, int signalStrength) {
         return switch (mode) {
             case ALWAYS_ON -> true;
@@ -1238,23 +1606,12 @@ public class TransferEngine {
                 hasPerEntryAmounts);
     }
 
-    private static Map<Item, Integer> buildItemCountCache(IItemHandler handler) {
-        Map<Item, Integer> counts = new HashMap<>();
-        for (int i = 0; i < handler.getSlots(); i++) {
-            ItemStack stack = handler.getStackInSlot(i);
-            if (!stack.isEmpty()) {
-                counts.merge(stack.getItem(), stack.getCount(), Integer::sum);
-            }
-        }
-        return counts;
-    }
-
     private static int getAllowedTransferCached(ItemStack candidate, AmountConstraints constraints,
-            Map<Item, Integer> sourceCounts, Map<Item, Integer> targetCounts) {
+            @Nullable ItemCountTable sourceCounts, @Nullable ItemCountTable targetCounts) {
         int allowed = Integer.MAX_VALUE;
 
         if (constraints.hasExportThreshold) {
-            int sourceCount = sourceCounts != null ? sourceCounts.getOrDefault(candidate.getItem(), 0) : 0;
+            int sourceCount = sourceCounts != null ? sourceCounts.getCount(candidate.getItem()) : 0;
             int exportCap = sourceCount - constraints.exportThreshold;
             if (exportCap <= 0)
                 return 0;
@@ -1262,7 +1619,7 @@ public class TransferEngine {
         }
 
         if (constraints.hasImportThreshold) {
-            int targetCount = targetCounts != null ? targetCounts.getOrDefault(candidate.getItem(), 0) : 0;
+            int targetCount = targetCounts != null ? targetCounts.getCount(candidate.getItem()) : 0;
             int importCap = constraints.importThreshold - targetCount;
             if (importCap <= 0)
                 return 0;
@@ -1296,7 +1653,7 @@ public class TransferEngine {
     }
 
     private static int getPerEntryItemAmountLimit(ItemStack candidate, ItemStack[] exportFilters,
-            ItemStack[] importFilters, Map<Item, Integer> sourceCounts, Map<Item, Integer> targetCounts,
+            ItemStack[] importFilters, @Nullable ItemCountTable sourceCounts, @Nullable ItemCountTable targetCounts,
             HolderLookup.Provider provider, @Nullable CompoundTag candidateComponents,
             @Nullable FilterItemData.ReadCache filterReadCache) {
         int allowed = Integer.MAX_VALUE;
@@ -1306,7 +1663,7 @@ public class TransferEngine {
                 int threshold = FilterItemData.getItemAmountThresholdFull(filter, candidate, provider,
                         candidateComponents, filterReadCache);
                 if (threshold > 0) {
-                    int sourceCount = sourceCounts != null ? sourceCounts.getOrDefault(candidate.getItem(), 0) : 0;
+                    int sourceCount = sourceCounts != null ? sourceCounts.getCount(candidate.getItem()) : 0;
                     int exportCap = sourceCount - threshold;
                     if (exportCap <= 0)
                         return 0;
@@ -1320,7 +1677,7 @@ public class TransferEngine {
                 int threshold = FilterItemData.getItemAmountThresholdFull(filter, candidate, provider,
                         candidateComponents, filterReadCache);
                 if (threshold > 0) {
-                    int targetCount = targetCounts != null ? targetCounts.getOrDefault(candidate.getItem(), 0) : 0;
+                    int targetCount = targetCounts != null ? targetCounts.getCount(candidate.getItem()) : 0;
                     int importCap = threshold - targetCount;
                     if (importCap <= 0)
                         return 0;
@@ -1376,75 +1733,12 @@ public class TransferEngine {
         return amount;
     }
 
-    private static boolean[] buildSlotAccessMask(IItemHandler handler, ItemStack[] filters) {
-        if (handler == null || filters == null || filters.length == 0) {
-            return null;
-        }
-
-        int slotCount = handler.getSlots();
-        if (slotCount <= 0) {
-            return null;
-        }
-
-        boolean[] allowed = new boolean[slotCount];
-        boolean[] blacklistMask = new boolean[slotCount];
-
-        boolean hasConfiguredSlotFilter = false;
-        boolean hasWhitelist = false;
-
-        for (ItemStack filter : filters) {
-            if (!SlotFilterData.isSlotFilterItem(filter) || !SlotFilterData.hasAnySlots(filter)) {
-                continue;
-            }
-
-            hasConfiguredSlotFilter = true;
-            List<Integer> slots = SlotFilterData.getSlots(filter);
-            if (slots.isEmpty()) {
-                continue;
-            }
-
-            if (SlotFilterData.isBlacklist(filter)) {
-                for (int slot : slots) {
-                    if (slot >= 0 && slot < slotCount) {
-                        blacklistMask[slot] = true;
-                    }
-                }
-            } else {
-                hasWhitelist = true;
-                for (int slot : slots) {
-                    if (slot >= 0 && slot < slotCount) {
-                        allowed[slot] = true;
-                    }
-                }
-            }
-        }
-
-        if (!hasConfiguredSlotFilter) {
-            return null;
-        }
-
-        if (!hasWhitelist) {
-            Arrays.fill(allowed, true);
-        }
-
-        for (int i = 0; i < slotCount; i++) {
-            if (blacklistMask[i]) {
-                allowed[i] = false;
-            }
-        }
-
-        return allowed;
-    }
-
-    private static boolean hasAnyAllowedSlots(boolean[] allowedSlots) {
-        if (allowedSlots == null) {
-            return true;
-        }
-        for (boolean allowed : allowedSlots) {
-            if (allowed) {
-                return true;
-            }
-        }
-        return false;
+    private static int nextAllowedSlot(@Nullable BitSet allowedSlots, int from, int slotCount) {
+        if (from >= slotCount)
+            return -1;
+        if (allowedSlots == null)
+            return from;
+        int slot = allowedSlots.nextSetBit(from);
+        return slot < slotCount ? slot : -1;
     }
 }
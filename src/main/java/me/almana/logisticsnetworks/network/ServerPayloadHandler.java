@@ -172,12 +172,9 @@ public class ServerPayloadHandler {
 
             // Update network name on all nodes in this network
             for (java.util.UUID nodeId : network.getNodeUuids()) {
-                for (ServerLevel level : player.getServer().getAllLevels()) {
-                    Entity entity = level.getEntity(nodeId);
-                    if (entity instanceof LogisticsNodeEntity node) {
-                        node.setNetworkName(newName);
-                        break;
-                    }
+                LogisticsNodeEntity node = registry.getNodeIndex().get(nodeId);
+                if (node != null) {
+                    node.setNetworkName(newName);
                 }
             }
 
@@ -480,7 +477,7 @@ public class ServerPayloadHandler {
 
     private static void markNetworkDirty(LogisticsNodeEntity node) {
         if (node.getNetworkId() != null && node.level() instanceof ServerLevel level) {
-            NetworkRegistry.get(level).markNetworkDirty(node.getNetworkId());
+            NetworkRegistry.get(level).markNodeChanged(node.getNetworkId(), node.getUUID());
         }
     }
 
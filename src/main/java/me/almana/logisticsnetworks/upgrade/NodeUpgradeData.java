@@ -3,12 +3,12 @@ package me.almana.logisticsnetworks.upgrade;
 import me.almana.logisticsnetworks.data.ChannelData;
 import me.almana.logisticsnetworks.data.ChannelMode;
 import me.almana.logisticsnetworks.data.LogisticsNetwork;
+import me.almana.logisticsnetworks.data.NetworkRegistry;
+import me.almana.logisticsnetworks.data.NodeIndex;
 import me.almana.logisticsnetworks.entity.LogisticsNodeEntity;
 import me.almana.logisticsnetworks.registration.Registration;
 import net.minecraft.resources.ResourceKey;
 import net.minecraft.server.MinecraftServer;
-import net.minecraft.server.level.ServerLevel;
-import net.minecraft.world.entity.Entity;
 import net.minecraft.world.item.ItemStack;
 import net.minecraft.world.level.Level;
 
@@ -113,7 +113,7 @@ public final class NodeUpgradeData {
             if (ch.getMode() == ChannelMode.EXPORT) {
                 hasExport[i] = true;
                 hasAnyChannel = true;
-            } else if (ch.getMode() == ChannelMode.IMPORT) {
+            } else if (ch.getMode().isImporting()) {
                 hasImport[i] = true;
                 hasAnyChannel = true;
             }
@@ -122,12 +122,13 @@ public final class NodeUpgradeData {
         if (!hasAnyChannel)
             return false;
 
+        NodeIndex nodeIndex = NetworkRegistry.get(server.overworld()).getNodeIndex();
         for (UUID otherId : network.getNodeUuids()) {
             if (otherId.equals(node.getUUID()))
                 continue;
 
-            Entity entity = findEntity(server, otherId);
-            if (!(entity instanceof LogisticsNodeEntity otherNode) || !otherNode.isValidNode())
+            LogisticsNodeEntity otherNode = nodeIndex.get(otherId);
+            if (otherNode == null || !otherNode.isValidNode())
                 continue;
             if (otherNode.level().dimension().equals(nodeDimension))
                 continue;
@@ -139,7 +140,7 @@ public final class NodeUpgradeData {
                     continue;
 
                 // This node exports on channel i → other node imports on channel i (same type)
-                if (hasExport[i] && otherCh.getMode() == ChannelMode.IMPORT
+                if (hasExport[i] && otherCh.getMode().isImporting()
                         && node.getChannel(i).getType() == otherCh.getType()) {
                     return true;
                 }
@@ -153,15 +154,6 @@ public final class NodeUpgradeData {
         return false;
     }
 
-    private static Entity findEntity(MinecraftServer server, UUID uuid) {
-        for (ServerLevel level : server.getAllLevels()) {
-            Entity entity = level.getEntity(uuid);
-            if (entity != null)
-                return entity;
-        }
-        return null;
-    }
-
     public static int getUpgradeTier(LogisticsNodeEntity node) {
         int maxTier = 0;
         for (int i = 0; i < LogisticsNodeEntity.UPGRADE_SLOT_COUNT; i++) {